@@ -0,0 +1,96 @@
+package heuristics.benchmarks;
+
+import heuristics.Batch;
+import heuristics.FitnessFunction;
+import heuristics.Vector;
+import heuristics.brkga.client.Configuration;
+import heuristics.brkga.independent.BiasedRandomKeyGeneticAlgorithmBatch;
+import heuristics.nbh.ils.client.FirstIterImpr;
+import heuristics.nbh.ils.independent.IteratedLocalSearchBatch;
+import heuristics.nbh.sa.SimulatedAnnealingBatch;
+import heuristics.nbh.ts.TabuSearchBatch;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the multi-threading overhead of a batch, i.e., a call to
+ * <i>iterate(iterations)</i> for each kind of batch, for several numbers
+ * of heuristics and both with dedicated and with shared carrier threads.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchBenchmark {
+
+    @Param({"ts", "sa", "ils", "brkga"})
+    public String kind;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"1", "100"})
+    public int iterations;
+
+    @Param({"64"})
+    public int length;
+
+    @Param({"0", "2"})
+    public int carriers;
+
+    private Batch batch;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        Vector[] feasibleSolutions = SyntheticProblem.randomVectors(threads, length, 0);
+        switch(kind) {
+            case "ts":
+                batch = new TabuSearchBatch(threads, 16, SyntheticProblem.DECODER, FitnessFunction.MIN, feasibleSolutions, SyntheticProblem.ADJACENT_SWAPS, SyntheticProblem.NEVER, 0);
+                break;
+            case "sa":
+                batch = new SimulatedAnnealingBatch(threads, 100, 0.01f, SyntheticProblem.DECODER, FitnessFunction.MIN, feasibleSolutions, SyntheticProblem.RANDOM_SWAP, SyntheticProblem.NEVER, 0);
+                break;
+            case "ils":
+                Function<Vector, Vector>[] perturbations = new Function[threads];
+                Arrays.fill(perturbations, SyntheticProblem.randomSwaps(2));
+                batch = new IteratedLocalSearchBatch(threads, new FirstIterImpr(4, SyntheticProblem.ADJACENT_SWAPS, SyntheticProblem.DECODER, FitnessFunction.MIN), perturbations, SyntheticProblem.DECODER, FitnessFunction.MIN, feasibleSolutions, SyntheticProblem.NEVER);
+                break;
+            case "brkga":
+                Configuration config = new Configuration(length, threads, 100, 0.2f, 0.1f);
+                batch = new BiasedRandomKeyGeneticAlgorithmBatch(FitnessFunction.MIN, config, SyntheticProblem.UNIFORM_CROSSOVER, SyntheticProblem.RANDOM_KEYS, SyntheticProblem.DECODER, SyntheticProblem.NEVER, 0);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown batch kind: " + kind);
+        }
+        batch.setCarrierThreads(carriers, 16);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        batch.close();
+    }
+
+    @Benchmark
+    public Batch iterate() throws InterruptedException {
+        batch.iterate(iterations);
+        return batch;
+    }
+}
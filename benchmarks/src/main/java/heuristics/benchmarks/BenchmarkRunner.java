@@ -0,0 +1,30 @@
+package heuristics.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler enabled, so that each result
+ * reports both the throughput (ops/s) and the allocation rate per operation
+ * (<tt>gc.alloc.rate.norm</tt>).
+ * Each argument is a regular expression that selects the benchmarks to run;
+ * with no arguments, all the benchmarks are run.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder().addProfiler(GCProfiler.class);
+        if(args.length == 0)
+            options.include("heuristics\\..*Benchmark");
+        for(String regex: args)
+            options.include(regex);
+        new Runner(options.build()).run();
+    }
+}
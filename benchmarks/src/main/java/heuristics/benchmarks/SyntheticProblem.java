@@ -0,0 +1,153 @@
+package heuristics.benchmarks;
+
+import heuristics.Heuristic;
+import heuristics.Vector;
+import heuristics.brkga.client.CrossingOver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Trivial problem components utilized by the benchmarks.
+ * Every component costs a single linear pass over the vector, so that the
+ * measured time is dominated by the framework and not by the client code.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ */
+public final class SyntheticProblem {
+
+    /**
+     * A stopping criterion that never stops the heuristic.
+     */
+    public static final Predicate<Heuristic> NEVER = heuristic -> false;
+
+    /**
+     * A decoder that returns the weighted sum of the vector cells, using
+     * <tt>i+1</tt> as weight of the <i>i</i>-th cell.
+     */
+    public static final Function<Vector, Double> DECODER = vector -> {
+        double sum = 0;
+        for(int i=0; i<vector.getLength(); i++)
+            sum += (i+1)*vector.get(i);
+        return sum;
+    };
+
+    /**
+     * The same decoder as {@link #DECODER}, which returns a primitive value.
+     */
+    public static final ToDoubleFunction<Vector> PRIMITIVE_DECODER = vector -> {
+        double sum = 0;
+        for(int i=0; i<vector.getLength(); i++)
+            sum += (i+1)*vector.get(i);
+        return sum;
+    };
+
+    /**
+     * A neighborhood made up by all the vectors obtained by swapping two
+     * adjacent cells.
+     */
+    public static final Function<Vector, List<Vector>> ADJACENT_SWAPS = vector -> {
+        List<Vector> neighbors = new ArrayList<>(vector.getLength()-1);
+        for(int i=0; i+1<vector.getLength(); i++)
+            neighbors.add(swap(vector, i, i+1));
+        return neighbors;
+    };
+
+    /**
+     * A random neighbor obtained by swapping two random cells.
+     */
+    public static final Function<Vector, Vector> RANDOM_SWAP = vector -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return swap(vector, random.nextInt(vector.getLength()), random.nextInt(vector.getLength()));
+    };
+
+    /**
+     * A random key generator which fills the vector with uniform keys in
+     * [0, 1).
+     */
+    public static final Consumer<Vector> RANDOM_KEYS = vector -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for(int i=0; i<vector.getLength(); i++)
+            vector.set(i, random.nextDouble());
+    };
+
+    /**
+     * A parameterized uniform crossover which inherits each key from the
+     * elite parent with probability 0.7.
+     */
+    public static final BiFunction<Vector, Vector, Vector> UNIFORM_CROSSOVER = (elite, notElite) -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Vector child = new Vector(elite.getLength());
+        for(int i=0; i<child.getLength(); i++)
+            child.set(i, random.nextDouble() < 0.7 ? elite.get(i) : notElite.get(i));
+        return child;
+    };
+
+    /**
+     * The same crossover as {@link #UNIFORM_CROSSOVER}, which writes the
+     * offspring into the given target vector.
+     */
+    public static final CrossingOver IN_PLACE_UNIFORM_CROSSOVER = (elite, notElite, target) -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for(int i=0; i<target.getLength(); i++)
+            target.set(i, random.nextDouble() < 0.7 ? elite.get(i) : notElite.get(i));
+    };
+
+    private SyntheticProblem() {
+    }
+
+    /**
+     * Returns a random vector of the specified length.
+     * @param length the vector length
+     * @param seed the seed to utilize for random calls
+     * @return a random vector
+     */
+    public static Vector randomVector(int length, long seed) {
+        Random random = new Random(seed);
+        Vector vector = new Vector(length);
+        for(int i=0; i<length; i++)
+            vector.set(i, random.nextDouble());
+        return vector;
+    }
+
+    /**
+     * Returns the specified number of random vectors of the specified length.
+     * @param count the number of vectors
+     * @param length the vectors length
+     * @param seed the seed to utilize for random calls
+     * @return the random vectors
+     */
+    public static Vector[] randomVectors(int count, int length, long seed) {
+        Vector[] vectors = new Vector[count];
+        for(int i=0; i<count; i++)
+            vectors[i] = randomVector(length, seed+i);
+        return vectors;
+    }
+
+    /**
+     * Returns a perturbation procedure which swaps the specified number of
+     * random couples of cells.
+     * @param swaps the number of swaps
+     * @return the perturbation procedure
+     */
+    public static Function<Vector, Vector> randomSwaps(int swaps) {
+        return vector -> {
+            Vector perturbed = vector;
+            for(int i=0; i<swaps; i++)
+                perturbed = RANDOM_SWAP.apply(perturbed);
+            return perturbed;
+        };
+    }
+
+    private static Vector swap(Vector vector, int i, int j) {
+        Vector neighbor = new Vector(vector);
+        neighbor.set(i, vector.get(j));
+        neighbor.set(j, vector.get(i));
+        return neighbor;
+    }
+}
@@ -0,0 +1,66 @@
+package heuristics.brkga.client;
+
+import heuristics.Vector;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the permutation which sorts the keys of a chromosome, i.e., the
+ * first step of most decoders, against the sort of boxed indexes.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KeySortBenchmark {
+
+    @Param({"16", "256", "4096"})
+    public int chromosomeLength;
+
+    private Vector keys;
+    private int[] permutation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = new Vector(chromosomeLength);
+        Random random = new Random(0);
+        for(int i=0; i<chromosomeLength; i++)
+            keys.set(i, random.nextDouble());
+        permutation = new int[chromosomeLength];
+    }
+
+    @Benchmark
+    public int[] radix() {
+        return KeySort.argsort(keys, permutation);
+    }
+
+    @Benchmark
+    public int[] radixTopTen() {
+        return KeySort.argsort(keys, permutation, Math.min(10, chromosomeLength));
+    }
+
+    @Benchmark
+    public Integer[] boxed() {
+        Integer[] indexes = new Integer[chromosomeLength];
+        for(int i=0; i<chromosomeLength; i++)
+            indexes[i] = i;
+        Arrays.sort(indexes, (i, j) -> Double.compare(keys.get(i), keys.get(j)));
+        return indexes;
+    }
+}
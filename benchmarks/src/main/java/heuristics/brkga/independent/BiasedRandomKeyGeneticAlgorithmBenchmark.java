@@ -0,0 +1,66 @@
+package heuristics.brkga.independent;
+
+import heuristics.ObjectiveSense;
+import heuristics.benchmarks.SyntheticProblem;
+import heuristics.brkga.client.Configuration;
+import heuristics.brkga.client.RandomKeyGenerator;
+import heuristics.brkga.client.UniformCrossover;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a single generation of the biased random-key genetic algorithm.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BiasedRandomKeyGeneticAlgorithmBenchmark {
+
+    @Param({"16", "256", "4096"})
+    public int chromosomeLength;
+
+    @Param({"100", "1000"})
+    public int populationSize;
+
+    /**
+     * The crossing over: the built-in uniform crossover and key generator,
+     * a client crossing over which writes in place, or a client crossing over
+     * which allocates each offspring.
+     */
+    @Param({"builtIn", "inPlace", "allocating"})
+    public String crossover;
+
+    private BiasedRandomKeyGeneticAlgorithm geneticAlgorithm;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Configuration config = new Configuration(chromosomeLength, 1, populationSize, 0.2f, 0.1f);
+        if(crossover.equals("builtIn"))
+            geneticAlgorithm = new BiasedRandomKeyGeneticAlgorithm(ObjectiveSense.MINIMIZE, config, new UniformCrossover(0.7), new RandomKeyGenerator(), SyntheticProblem.PRIMITIVE_DECODER, SyntheticProblem.NEVER, null, new Random(0));
+        else if(crossover.equals("inPlace"))
+            geneticAlgorithm = new BiasedRandomKeyGeneticAlgorithm(ObjectiveSense.MINIMIZE, config, SyntheticProblem.IN_PLACE_UNIFORM_CROSSOVER, SyntheticProblem.RANDOM_KEYS, SyntheticProblem.PRIMITIVE_DECODER, SyntheticProblem.NEVER, null, new Random(0));
+        else
+            geneticAlgorithm = new BiasedRandomKeyGeneticAlgorithm(ObjectiveSense.MINIMIZE, config, SyntheticProblem.UNIFORM_CROSSOVER, SyntheticProblem.RANDOM_KEYS, SyntheticProblem.PRIMITIVE_DECODER, SyntheticProblem.NEVER, new Random(0));
+    }
+
+    @Benchmark
+    public boolean iterate() {
+        return geneticAlgorithm.iterate();
+    }
+}
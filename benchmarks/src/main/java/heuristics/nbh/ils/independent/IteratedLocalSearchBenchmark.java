@@ -0,0 +1,62 @@
+package heuristics.nbh.ils.independent;
+
+import heuristics.ObjectiveSense;
+import heuristics.Vector;
+import heuristics.benchmarks.SyntheticProblem;
+import heuristics.nbh.ils.client.BestIterImpr;
+import heuristics.nbh.ils.client.FirstIterImpr;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a single iterated local search iteration, using either the first
+ * improvement or the best improvement local search procedure over the
+ * adjacent swaps neighborhood.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IteratedLocalSearchBenchmark {
+
+    @Param({"16", "128", "1024"})
+    public int length;
+
+    @Param({"first", "best"})
+    public String localSearch;
+
+    @Param({"4"})
+    public int localSearchIterations;
+
+    private IteratedLocalSearch iteratedLocalSearch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Function<Vector, Vector> procedure;
+        if("first".equals(localSearch))
+            procedure = new FirstIterImpr(localSearchIterations, SyntheticProblem.ADJACENT_SWAPS, SyntheticProblem.PRIMITIVE_DECODER, ObjectiveSense.MINIMIZE);
+        else
+            procedure = new BestIterImpr(localSearchIterations, SyntheticProblem.ADJACENT_SWAPS, SyntheticProblem.PRIMITIVE_DECODER, ObjectiveSense.MINIMIZE);
+        iteratedLocalSearch = new IteratedLocalSearch(procedure, SyntheticProblem.randomSwaps(2), SyntheticProblem.PRIMITIVE_DECODER, ObjectiveSense.MINIMIZE, SyntheticProblem.randomVector(length, 0), SyntheticProblem.NEVER);
+    }
+
+    @Benchmark
+    public boolean iterate() {
+        return iteratedLocalSearch.iterate();
+    }
+}
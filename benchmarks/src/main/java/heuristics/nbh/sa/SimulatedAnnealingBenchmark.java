@@ -0,0 +1,53 @@
+package heuristics.nbh.sa;
+
+import heuristics.ObjectiveSense;
+import heuristics.Vector;
+import heuristics.benchmarks.SyntheticProblem;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a single simulated annealing iteration with a random swap move,
+ * with either a boxed or a primitive decoder.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimulatedAnnealingBenchmark {
+
+    @Param({"16", "128", "1024"})
+    public int length;
+
+    @Param({"true", "false"})
+    public boolean boxed;
+
+    private SimulatedAnnealing simulatedAnnealing;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ToDoubleFunction<Vector> decoder = boxed ? SyntheticProblem.DECODER::apply : SyntheticProblem.PRIMITIVE_DECODER;
+        simulatedAnnealing = new SimulatedAnnealing(100, 0.01f, decoder, ObjectiveSense.MINIMIZE, SyntheticProblem.randomVector(length, 0), SyntheticProblem.RANDOM_SWAP, SyntheticProblem.NEVER, new Random(0));
+    }
+
+    @Benchmark
+    public boolean iterate() {
+        return simulatedAnnealing.iterate();
+    }
+}
@@ -0,0 +1,50 @@
+package heuristics.nbh.ts;
+
+import heuristics.ObjectiveSense;
+import heuristics.benchmarks.SyntheticProblem;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a single tabu search iteration over the adjacent swaps
+ * neighborhood.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TabuSearchBenchmark {
+
+    @Param({"16", "128", "1024"})
+    public int length;
+
+    @Param({"8", "64"})
+    public int tabuListSize;
+
+    private TabuSearch tabuSearch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tabuSearch = new TabuSearch(tabuListSize, SyntheticProblem.PRIMITIVE_DECODER, ObjectiveSense.MINIMIZE, SyntheticProblem.randomVector(length, 0), SyntheticProblem.ADJACENT_SWAPS, SyntheticProblem.NEVER, new Random(0));
+    }
+
+    @Benchmark
+    public boolean iterate() {
+        return tabuSearch.iterate();
+    }
+}
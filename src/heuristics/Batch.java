@@ -1,30 +1,130 @@
 package heuristics;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToLongFunction;
 import java.util.stream.IntStream;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 /**
- * A multi-threading manager for heuristics
+ * A multi-threading manager for heuristics.<br>
+ * The heuristics are iterated by long-lived worker threads, one for each
+ * heuristic, which are started by the first iteration and are kept alive
+ * between subsequent iterations. Alternatively, the heuristics can share a
+ * bounded number of carrier threads (see <i>setCarrierThreads</i>). The
+ * worker threads are daemon threads and they are released by the
+ * <i>close</i> method.<br>
+ * A run can be stopped by any thread by means of <i>cancel</i>, or bounded by
+ * a deadline (see <i>runFor</i> and <i>runUntil</i>): the worker threads
+ * observe the cancellation within one iteration of their heuristic.<br>
+ * A run can also be started asynchronously (see <i>start</i>), while the
+ * improvements of the best vector are published as they happen (see
+ * <i>getImprovements</i>).<br>
+ * The state of the heuristics can be saved into a checkpoint file and then
+ * restored into an equally constructed batch (see <i>checkpoint</i> and
+ * <i>restore</i>).<br>
+ * The metrics of the batch and of its heuristics can be registered as MBeans
+ * (see <i>registerMBeans</i>).
  * @author Mirko Alicastro {@link https://mirkoalicastro.com}
  * @see Heuristic
  */
-public class Batch {
+public class Batch implements AutoCloseable {
     private Comparator<? super Heuristic> bestHeuristicComparatorMin;
     private Comparator<? super Heuristic> bestHeuristicComparatorMax;
     private Heuristic[] heuristics;
     private Comparator<? super Vector> comparator;
+    private volatile WorkerPool pool;
+    private boolean stalePool;
+    /**
+     * Serializes the runs, so that the monitor of the batch is held only
+     * while a run prepares its pool, and the other methods don't wait for
+     * the runs.
+     */
+    private final Object runLock = new Object();
+    private int carriers, quantum;
+    private volatile Cancellation cancellation;
+    private volatile SharedIncumbent incumbent;
+    private final IncumbentPublisher improvements = new IncumbentPublisher(this::getBest, newDeliveryExecutor());
+    private ObjectName[] mbeans;
+    private Metrics metrics;
     
     /**
      * Sets the heuristics.
      * Each heuristic should be initialized with a different seed.
      * The array length will determine the number of threads to create when
-     * iterating.
+     * iterating. The worker threads of the previous heuristics array, if any,
+     * are released by the next iteration.
      * @param heuristics the heuristics array
      */
-    public void setHeuristics(Heuristic[] heuristics) {
+    public synchronized void setHeuristics(Heuristic[] heuristics) {
         this.heuristics = heuristics;
+        for(int i=0; i<heuristics.length; i++)
+            heuristics[i].setBatchIndex(i);
+        stalePool = true;
+        share();
+    }
+
+    /**
+     * Makes the heuristics share a new incumbent vector, once both the
+     * heuristics and the vector comparator are set.
+     */
+    private synchronized void share() {
+        if(heuristics == null || comparator == null)
+            return;
+        incumbent = new SharedIncumbent(ValueComparator.of(comparator), improvements::signal);
+        for(Heuristic heuristic: heuristics)
+            heuristic.share(incumbent);
+        improvements.signal();
+    }
+
+    /**
+     * Sets the number of carrier threads shared by the heuristics.
+     * When <i>carriers</i> is greater than 0, the heuristics don't own a
+     * thread each: they are scheduled on the specified number of carrier
+     * threads and each of them cooperatively yields its carrier thread every
+     * <i>quantum</i> iterations, so that any number of heuristics can be
+     * iterated by a bounded number of threads. When <i>carriers</i> is 0
+     * (the default), each heuristic is iterated by its own worker thread.
+     * The change takes effect with the next iteration.
+     * @param carriers the number of carrier threads, or 0 to dedicate a worker
+     * thread to each heuristic
+     * @param quantum the number of consecutive iterations that a heuristic
+     * performs before yielding its carrier thread
+     */
+    public synchronized void setCarrierThreads(int carriers, int quantum) {
+        if(carriers < 0)
+            throw new IllegalArgumentException("The number of carrier threads can't be negative");
+        if(quantum < 1)
+            throw new IllegalArgumentException("The quantum must be greater than 0");
+        this.carriers = carriers;
+        this.quantum = quantum;
+        stalePool = true;
+    }
+
+    /**
+     * Returns the number of carrier threads shared by the heuristics, or 0 if
+     * each heuristic is iterated by its own worker thread.
+     * @return the number of carrier threads
+     * @see #setCarrierThreads(int, int) 
+     */
+    public int getCarrierThreads() {
+        return carriers;
     }
 
     /**
@@ -55,6 +155,7 @@ public class Batch {
             return Integer.compare(h2.getIterationsForBestVector(), h1.getIterationsForBestVector());
         };
         this.comparator = comparator;
+        share();
     }
 
     /**
@@ -79,20 +180,299 @@ public class Batch {
      * @param iterations the number of iterations that has to be performed
      * @see Heuristic#iterate() 
      * @throws InterruptedException 
+     * @throws CompletionException if a heuristic has thrown an exception,
+     * which is its cause; the other heuristics are stopped within one
+     * iteration
+     */
+    public void iterate(Integer iterations) throws InterruptedException {
+        run(iterations, new Cancellation(Long.MAX_VALUE));
+    }
+
+    /**
+     * Starts a parallel undefined number of iterations over the currently
+     * managed heuristics, without waiting for them.
+     * The heuristics are driven by a new daemon thread and they will be
+     * stopped by their stopping criteria, or by <i>cancel</i>, which stops
+     * this run as soon as this method returns, even if the run hasn't started
+     * yet. Cancelling the returned future cancels the run as well.
+     * @return the future of the best snapshot among the heuristics array,
+     * which is completed when the run ends
+     * @see #iterateUntilStoppingCriterion() 
+     * @see #getImprovements() 
+     */
+    public CompletableFuture<Incumbent> start() {
+        CompletableFuture<Incumbent> result = new CompletableFuture<>();
+        Cancellation cancellation = new Cancellation(Long.MAX_VALUE);
+        Thread runner = new Thread(() -> {
+            try {
+                run(null, cancellation);
+                result.complete(getBest());
+            } catch(InterruptedException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }, "heuristics-batch-runner");
+        runner.setDaemon(true);
+        result.whenComplete((best, e) -> {
+            if(result.isCancelled())
+                cancellation.cancel();
+        });
+        this.cancellation = cancellation;
+        runner.start();
+        return result;
+    }
+
+    /**
+     * Returns the publisher of the improvements of the best vector among the
+     * heuristics array.
+     * Each subscriber receives the snapshots of the incumbent vector shared
+     * by the heuristics as they improve it, only as far as it requested
+     * them. The snapshots are delivered by a daemon thread of the batch,
+     * which is started by the first delivery and stops when it's idle, so
+     * that a slow subscriber delays only the other subscribers, and never
+     * the heuristics or the threads of the common fork-join pool, which
+     * evaluate vectors for them. The subscribers are completed by
+     * <i>close</i>, or completed with the failure of a run, if a heuristic
+     * throws an exception.
+     * @return the publisher of the improvements
+     * @see #getBest() 
      */
-    public synchronized void iterate(Integer iterations) throws InterruptedException {
+    public IncumbentPublisher getImprovements() {
+        return improvements;
+    }
+
+    /**
+     * Performs a parallel undefined number of iterations over the currently
+     * managed heuristics, for at most the specified duration.
+     * Heuristics will be stopped by their stopping criteria or, at the latest,
+     * within one iteration after the duration has elapsed.
+     * @param duration the maximum duration of the run
+     * @throws InterruptedException 
+     * @see #runUntil(long) 
+     */
+    public void runFor(Duration duration) throws InterruptedException {
+        long timeout;
+        try {
+            timeout = duration.toNanos();
+        } catch(ArithmeticException e) {
+            timeout = duration.isNegative() ? 0 : Long.MAX_VALUE;
+        }
+        run(timeout);
+    }
+
+    /**
+     * Performs a parallel undefined number of iterations over the currently
+     * managed heuristics, until the specified deadline.
+     * Heuristics will be stopped by their stopping criteria or, at the latest,
+     * within one iteration after the deadline.
+     * @param deadline the deadline, in the time scale of
+     * <i>System.nanoTime</i>
+     * @throws InterruptedException 
+     * @see System#nanoTime() 
+     */
+    public void runUntil(long deadline) throws InterruptedException {
+        run(Math.max(deadline-System.nanoTime(), 0));
+    }
+
+    /**
+     * Stops the running iteration, if any.
+     * This method can be called by any thread and it doesn't wait for the
+     * heuristics to stop: each worker thread stops within one iteration of its
+     * heuristic, then the thread waiting for the run returns.
+     */
+    public void cancel() {
+        Cancellation cancellation = this.cancellation;
+        if(cancellation != null)
+            cancellation.cancel();
+    }
+
+    private void run(long timeout) throws InterruptedException {
+        run(null, new Cancellation(timeout));
+    }
+
+    private void run(Integer iterations, Cancellation cancellation) throws InterruptedException {
         /* Note: don't use parallel stream because we want to force the parallel
            execution of the heuristics iterations.
         */
-        Thread[] threads = new Thread[heuristics.length];
-        for(int i=0; i<threads.length; i++) {
-            threads[i] = new MyThread(i, iterations);
-            threads[i].start();
+        synchronized(runLock) {
+            WorkerPool pool;
+            synchronized(this) {
+                this.cancellation = cancellation;
+                if(this.pool != null && stalePool)
+                    releasePool();
+                if(this.pool == null) {
+                    if(carriers > 0)
+                        this.pool = new CarrierPool(heuristics, carriers, quantum);
+                    else
+                        this.pool = new DedicatedPool(heuristics);
+                    stalePool = false;
+                }
+                pool = this.pool;
+            }
+            try {
+                pool.step(iterations, cancellation);
+            } catch(CompletionException e) {
+                improvements.fail(e.getCause());
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Returns the executor which delivers the improvements: a single daemon
+     * thread, which stops after one second without deliveries.
+     */
+    private static ThreadPoolExecutor newDeliveryExecutor() {
+        return new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "heuristics-batch-improvements");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Releases the worker threads.
+     * If an iteration is still running, e.g., because it has been started by
+     * <i>start</i> or because the thread that invoked <i>iterate</i> has been
+     * interrupted, it is cancelled and this method waits for the worker
+     * threads to stop, i.e., within one iteration of their heuristics. A
+     * subsequent iteration starts new worker threads.<br>
+     * If the calling thread is interrupted while waiting, this method returns
+     * with the interrupt status set: the worker threads are still stopping,
+     * and they are released by a subsequent invocation of this method or by
+     * the next iteration.
+     */
+    @Override
+    public void close() {
+        cancel();
+        WorkerPool pool = this.pool;
+        if(pool != null)
+            pool.cancelled = true;
+        synchronized(runLock) {
+            synchronized(this) {
+                try {
+                    releasePool();
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                improvements.complete();
+            }
+        }
+    }
+
+    /**
+     * Releases the worker threads, without completing the subscribers of the
+     * improvements, e.g., when the pool has to be replaced by a new one.
+     * If the calling thread is interrupted, the pool is kept as stale, so that
+     * it is released again before the next iteration.
+     */
+    private void releasePool() throws InterruptedException {
+        if(pool != null) {
+            stalePool = true;
+            pool.close();
+            pool = null;
         }
-        for(Thread thread: threads)
-            thread.join();
     }
     
+    /**
+     * Writes a checkpoint of the heuristics into a file, which is created or
+     * replaced.
+     * The checkpoint can be taken by any thread, also while the batch is
+     * running, e.g., after <i>start</i>: each heuristic is paused only while
+     * its state is copied in memory, between two of its iterations, since the
+     * file is written afterwards. The states of a running batch may therefore
+     * belong to slightly different moments of the run.
+     * @param file the checkpoint file
+     * @throws IOException if the file can't be written
+     * @see Checkpoint
+     */
+    public void checkpoint(Path file) throws IOException {
+        Checkpoint.write(file, saveStates(heuristics));
+    }
+
+    private static Checkpoint.Writer[] saveStates(Heuristic[] heuristics) {
+        Checkpoint.Writer[] states = new Checkpoint.Writer[heuristics.length];
+        for(int i=0; i<heuristics.length; i++) {
+            states[i] = new Checkpoint.Writer();
+            synchronized(heuristics[i]) {
+                heuristics[i].checkpoint(states[i]);
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Restores the heuristics from a checkpoint file, so that the next run
+     * continues from where the checkpointed batch was.
+     * The batch must be constructed in the same way as the checkpointed one,
+     * e.g., with the same number of heuristics and the same configuration.
+     * @param file the checkpoint file
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if the file is not a checkpoint of an
+     * equally constructed batch
+     * @see #checkpoint(java.nio.file.Path) 
+     */
+    public synchronized void restore(Path file) throws IOException {
+        Checkpoint.Reader[] states = Checkpoint.read(file);
+        if(states.length != heuristics.length)
+            throw new IllegalArgumentException("The checkpoint has a different number of heuristics");
+        for(int i=0; i<heuristics.length; i++)
+            synchronized(heuristics[i]) {
+                heuristics[i].restore(states[i]);
+            }
+        share();
+    }
+
+    /**
+     * Registers the metrics of the batch and of the current heuristics as
+     * MBeans of the platform MBean server, and enables the metrics of the
+     * heuristics.
+     * The batch is registered as <tt>heuristics:type=Batch,name=</tt><i>name
+     * </i> and each heuristic as <tt>heuristics:type=Heuristic,batch=</tt>
+     * <i>name</i><tt>,index=</tt><i>index</i>, where the name is quoted. The
+     * MBeans registered by a previous call are unregistered before, so that
+     * this method can be called again after <i>setHeuristics</i>.
+     * @param name the name of the batch
+     * @throws JMException if the MBeans can't be registered
+     * @see HeuristicMXBean
+     * @see BatchMXBean
+     */
+    public synchronized void registerMBeans(String name) throws JMException {
+        unregisterMBeans();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String quoted = ObjectName.quote(name);
+        Heuristic[] heuristics = this.heuristics;
+        ObjectName[] names = new ObjectName[heuristics.length+1];
+        names[0] = new ObjectName("heuristics:type=Batch,name=" + quoted);
+        metrics = new Metrics(heuristics);
+        mbeans = names;
+        server.registerMBean(metrics, names[0]);
+        for(int i=0; i<heuristics.length; i++) {
+            names[i+1] = new ObjectName("heuristics:type=Heuristic,batch=" + quoted + ",index=" + i);
+            heuristics[i].getMetrics().setEnabled(true);
+            server.registerMBean(heuristics[i].getMetrics(), names[i+1]);
+        }
+    }
+
+    /**
+     * Unregisters the MBeans registered by <i>registerMBeans</i>, if any, and
+     * disables the metrics of their heuristics.
+     * @throws JMException if the MBeans can't be unregistered
+     * @see #registerMBeans(java.lang.String) 
+     */
+    public synchronized void unregisterMBeans() throws JMException {
+        if(mbeans == null)
+            return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName[] names = mbeans;
+        mbeans = null;
+        for(Heuristic heuristic: metrics.heuristics)
+            heuristic.getMetrics().setEnabled(false);
+        for(ObjectName name: names)
+            if(name != null && server.isRegistered(name))
+                server.unregisterMBean(name);
+    }
+
     /**
      * Performs a parallel undefined number of iterations over the currently
      * managed heuristics.
@@ -107,9 +487,14 @@ public class Batch {
     /**
      * Returns the vector that represents the solution with the best objective
      * function value, among the heuristics array.
+     * It is a copy of the incumbent vector shared by the heuristics.
      * @return the best vector
+     * @see #getBest() 
      */
     public Vector getBestVector() {
+        Incumbent best = getBest();
+        if(best != null)
+            return best.toVector();
         return IntStream.range(0, heuristics.length)
                 .mapToObj(i -> heuristics[i].getBestVector())
                 .sorted(comparator)
@@ -117,6 +502,19 @@ public class Batch {
                 .get();
     }
 
+    /**
+     * Returns the snapshot of the incumbent vector shared by the heuristics,
+     * which is updated by compare-and-set whenever a heuristic improves it.
+     * This method doesn't copy nor compare any vector and it can be called
+     * while the heuristics are iterating.
+     * @return the best snapshot among the heuristics array, or null if the
+     * vector comparator or the heuristics are not set
+     */
+    public Incumbent getBest() {
+        SharedIncumbent incumbent = this.incumbent;
+        return incumbent == null ? null : incumbent.get();
+    }
+
     /**
      * Returns the vector that represents the solution with the best objective
      * function value, of a specified heuristic.
@@ -172,23 +570,346 @@ public class Batch {
                 .sorted(bestHeuristicComparatorMin)
                 .findFirst().get().getHistory();
     }
-    private class MyThread extends Thread {
-        final int index;
-        final Integer iterations;
-        MyThread(int index, Integer iterations) {
-            this.iterations = iterations;
-            this.index = index;
+
+    /**
+     * A token which stops a run of the heuristics when it is cancelled or
+     * when its timeout, in nanoseconds, has elapsed since its creation.
+     * A timeout of <tt>Long.MAX_VALUE</tt> means no timeout, so that an
+     * untimed run never reads the clock.
+     */
+    private static final class Cancellation {
+        private final long startedAt, timeout;
+        private volatile boolean cancelled;
+
+        Cancellation(long timeout) {
+            this.startedAt = System.nanoTime();
+            this.timeout = timeout;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        boolean isCancelled() {
+            if(cancelled)
+                return true;
+            if(timeout != Long.MAX_VALUE && System.nanoTime()-startedAt >= timeout)
+                cancelled = true;
+            return cancelled;
         }
+    }
+
+    /**
+     * The metrics of a batch, which are summed over the metrics of its
+     * heuristics whenever they are read.
+     */
+    private final class Metrics implements BatchMXBean {
+        private final Heuristic[] heuristics;
+
+        Metrics(Heuristic[] heuristics) {
+            this.heuristics = heuristics;
+        }
+
+        private long sum(ToLongFunction<HeuristicMetrics> metric) {
+            return Arrays.stream(heuristics).mapToLong(heuristic -> metric.applyAsLong(heuristic.getMetrics())).sum();
+        }
+
         @Override
-        public void run() {
-            synchronized(heuristics[index]) {
-                if(iterations == null)
-                    heuristics[index].iterateUntilStoppingCriterion();
-                else
-                    for(int e=0; e<iterations && !isInterrupted(); e++)
-                        if(!heuristics[index].iterate())
-                            return;
+        public int getHeuristicsCount() {
+            return heuristics.length;
+        }
+
+        @Override
+        public long getIterations() {
+            return sum(HeuristicMetrics::getIterations);
+        }
+
+        @Override
+        public double getIterationsPerSecond() {
+            return Arrays.stream(heuristics).mapToDouble(heuristic -> heuristic.getMetrics().getIterationsPerSecond()).sum();
+        }
+
+        @Override
+        public int getIterationsWithNoIncrement() {
+            return Arrays.stream(heuristics).mapToInt(Heuristic::getIterationsWithNoIncrement).min().orElse(0);
+        }
+
+        @Override
+        public long getDecoderCalls() {
+            return sum(HeuristicMetrics::getDecoderCalls);
+        }
+
+        @Override
+        public double getDecoderCallsPerSecond() {
+            return Arrays.stream(heuristics).mapToDouble(heuristic -> heuristic.getMetrics().getDecoderCallsPerSecond()).sum();
+        }
+
+        @Override
+        public long getDecoderNanos() {
+            return sum(HeuristicMetrics::getDecoderNanos);
+        }
+
+        @Override
+        public long getIterationNanos() {
+            return sum(HeuristicMetrics::getIterationNanos);
+        }
+
+        @Override
+        public long getFrameworkNanos() {
+            return sum(HeuristicMetrics::getFrameworkNanos);
+        }
+
+        @Override
+        public double getDecoderTimeRatio() {
+            long iterationNanos = getIterationNanos();
+            return iterationNanos == 0 ? 0 : (double) getDecoderNanos()/iterationNanos;
+        }
+
+        @Override
+        public double getBestValue() {
+            Incumbent best = getBest();
+            return best == null ? Double.NaN : best.getValue();
+        }
+
+        @Override
+        public double getAllocatedBytesPerIteration() {
+            long allocatedBytes = sum(HeuristicMetrics::getAllocatedBytes), iterations = sum(HeuristicMetrics::getMeasuredIterations);
+            if(allocatedBytes < 0)
+                return -1;
+            return iterations == 0 ? 0 : (double) allocatedBytes/iterations;
+        }
+
+        @Override
+        public void reset() {
+            for(Heuristic heuristic: heuristics)
+                heuristic.getMetrics().reset();
+        }
+    }
+
+    /**
+     * A set of threads which iterates the heuristics one step at a time.
+     * A step is requested by the <i>step</i> method, which returns when the
+     * requested iterations have been performed. If the thread waiting for a
+     * step is interrupted, the step keeps running and it is awaited by the
+     * next step, or stopped by <i>close</i>.
+     * If a heuristic throws an exception, the step stops the other heuristics
+     * and rethrows it, while the worker threads stay alive for the next step.
+     */
+    private static abstract class WorkerPool {
+        final Heuristic[] heuristics;
+        volatile boolean cancelled;
+        volatile Cancellation cancellation;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        WorkerPool(Heuristic[] heuristics) {
+            this.heuristics = heuristics;
+        }
+
+        abstract void step(Integer iterations, Cancellation cancellation) throws InterruptedException;
+
+        abstract void close() throws InterruptedException;
+
+        /**
+         * Performs the specified number of iterations of a heuristic, or
+         * iterates it until its stopping criterion if <i>iterations</i> is
+         * negative.
+         * @return true if all the iterations were performed, false if the
+         * heuristic stopped or the step was cancelled
+         */
+        boolean work(int index, int iterations) {
+            Cancellation cancellation = this.cancellation;
+            return heuristics[index].iterate(iterations, () -> cancelled || cancellation.isCancelled() || failure.get() != null || Thread.currentThread().isInterrupted());
+        }
+
+        /**
+         * Records an exception thrown by a heuristic, which stops the step.
+         * The exceptions thrown by the other heuristics within the same step
+         * are suppressed by the first one.
+         */
+        void fail(Throwable e) {
+            if(!failure.compareAndSet(null, e)) {
+                Throwable first = failure.get();
+                if(first != null && first != e)
+                    first.addSuppressed(e);
+            }
+        }
+
+        /**
+         * Rethrows the exception recorded by the last step, if any.
+         * @throws CompletionException whose cause is the recorded exception
+         */
+        void rethrowFailure() {
+            Throwable e = failure.getAndSet(null);
+            if(e != null)
+                throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * A pool with a worker thread for each heuristic, stepped in lockstep by
+     * a phaser. Each step is made up by two phases: in the first one the
+     * workers wait for the step to be requested, in the second one the batch
+     * waits for the workers to complete the requested iterations.
+     */
+    private static class DedicatedPool extends WorkerPool {
+        private final Phaser phaser;
+        private final Worker[] workers;
+        private volatile boolean closed;
+        private int iterations;
+        private int pendingPhase = -1;
+
+        DedicatedPool(Heuristic[] heuristics) {
+            super(heuristics);
+            phaser = new Phaser(heuristics.length+1);
+            workers = new Worker[heuristics.length];
+            for(int i=0; i<workers.length; i++) {
+                workers[i] = new Worker(i);
+                workers[i].start();
+            }
+        }
+
+        @Override
+        void step(Integer iterations, Cancellation cancellation) throws InterruptedException {
+            awaitPendingStep();
+            rethrowFailure();
+            this.iterations = iterations == null ? -1 : iterations;
+            this.cancellation = cancellation;
+            phaser.arriveAndAwaitAdvance();
+            pendingPhase = phaser.arrive();
+            awaitPendingStep();
+            rethrowFailure();
+        }
+
+        private void awaitPendingStep() throws InterruptedException {
+            if(pendingPhase >= 0) {
+                phaser.awaitAdvanceInterruptibly(pendingPhase);
+                pendingPhase = -1;
+            }
+        }
+
+        @Override
+        void close() throws InterruptedException {
+            cancelled = true;
+            awaitPendingStep();
+            if(!closed) {
+                closed = true;
+                phaser.arriveAndDeregister();
             }
+            for(Worker worker: workers)
+                worker.join();
+        }
+
+        private class Worker extends Thread {
+            final int index;
+            Worker(int index) {
+                super("heuristics-batch-worker-" + index);
+                this.index = index;
+                setDaemon(true);
+            }
+            @Override
+            public void run() {
+                while(true) {
+                    phaser.arriveAndAwaitAdvance();
+                    if(closed) {
+                        phaser.arriveAndDeregister();
+                        return;
+                    }
+                    try {
+                        work(index, iterations);
+                    } catch(Throwable e) {
+                        fail(e);
+                    }
+                    phaser.arriveAndAwaitAdvance();
+                }
+            }
+        }
+    }
+
+    /**
+     * A pool with a bounded number of carrier threads shared by all the
+     * heuristics. The heuristics waiting for a carrier thread are kept in a
+     * queue: a carrier thread takes a heuristic, iterates it for at most a
+     * quantum of iterations and then puts it back at the end of the queue if
+     * it has still iterations to perform.
+     */
+    private static class CarrierPool extends WorkerPool {
+        private final BlockingQueue<Integer> ready;
+        private final Thread[] carriers;
+        private final int[] remaining;
+        private final int quantum;
+        private CountDownLatch pendingStep;
+
+        CarrierPool(Heuristic[] heuristics, int carriers, int quantum) {
+            super(heuristics);
+            this.quantum = quantum;
+            ready = new LinkedBlockingQueue<>();
+            remaining = new int[heuristics.length];
+            this.carriers = new Thread[Math.min(carriers, heuristics.length)];
+            for(int i=0; i<this.carriers.length; i++) {
+                this.carriers[i] = new Thread(this::carry, "heuristics-batch-carrier-" + i);
+                this.carriers[i].setDaemon(true);
+                this.carriers[i].start();
+            }
+        }
+
+        @Override
+        void step(Integer iterations, Cancellation cancellation) throws InterruptedException {
+            awaitPendingStep();
+            rethrowFailure();
+            if(iterations != null && iterations == 0)
+                return;
+            this.cancellation = cancellation;
+            pendingStep = new CountDownLatch(heuristics.length);
+            for(int i=0; i<heuristics.length; i++) {
+                remaining[i] = iterations == null ? -1 : iterations;
+                ready.add(i);
+            }
+            awaitPendingStep();
+            rethrowFailure();
+        }
+
+        private void awaitPendingStep() throws InterruptedException {
+            if(pendingStep != null) {
+                pendingStep.await();
+                pendingStep = null;
+            }
+        }
+
+        private void carry() {
+            while(true) {
+                int index;
+                try {
+                    index = ready.take();
+                } catch(InterruptedException e) {
+                    return;
+                }
+                int iterations = remaining[index];
+                int slice = iterations < 0 ? quantum : Math.min(iterations, quantum);
+                boolean performed;
+                try {
+                    performed = work(index, slice);
+                } catch(Throwable e) {
+                    fail(e);
+                    performed = false;
+                }
+                if(performed && iterations != slice) {
+                    if(iterations > 0)
+                        remaining[index] = iterations-slice;
+                    ready.add(index);
+                } else {
+                    pendingStep.countDown();
+                }
+            }
+        }
+
+        @Override
+        void close() throws InterruptedException {
+            cancelled = true;
+            awaitPendingStep();
+            for(Thread carrier: carriers)
+                carrier.interrupt();
+            for(Thread carrier: carriers)
+                carrier.join();
         }
     }
 }
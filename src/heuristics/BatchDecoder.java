@@ -0,0 +1,68 @@
+package heuristics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * A decoder which evaluates many vectors in one call, so that its setup
+ * cost, e.g., scratch buffers, instance lookups or native-friendly layouts,
+ * is paid once per chunk of vectors instead of once per vector.
+ * The heuristics which evaluate many vectors at once, i.e., the populations
+ * of the biased random-key genetic algorithm and the neighborhoods of the tabu
+ * search and of the best improvement local search, recognize a batch decoder
+ * and hand it a chunk of vectors for each worker thread of the common
+ * fork-join pool. A single vector, e.g., a starting solution, is decoded by
+ * <i>applyAsDouble</i>.
+ * Since it is a primitive decoder, it can be given to any heuristic or batch
+ * which accepts a <i>ToDoubleFunction</i> decoder.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ */
+@FunctionalInterface
+public interface BatchDecoder extends ToDoubleFunction<Vector> {
+
+    /**
+     * Decodes a range of vectors, writing the objective function value of
+     * <i>vectors[i]</i> into <i>values[i]</i>.
+     * It can be called by many threads at once, on disjoint ranges.
+     * @param vectors the vectors to decode
+     * @param from the index of the first vector to decode, inclusive
+     * @param to the index of the last vector to decode, exclusive
+     * @param values the array where the objective function values are
+     * written
+     */
+    void decode(Vector[] vectors, int from, int to, double[] values);
+
+    /**
+     * Decodes a single vector, as a range of one vector.
+     * It can be overridden when a single vector can be decoded faster.
+     * @param vector the vector to decode
+     * @return the objective function value
+     */
+    @Override
+    default double applyAsDouble(Vector vector) {
+        double[] value = new double[1];
+        decode(new Vector[] {vector}, 0, 1, value);
+        return value[0];
+    }
+
+    /**
+     * Decodes the first <i>length</i> vectors, split into a chunk for each
+     * worker thread of the common fork-join pool, which are decoded in
+     * parallel.
+     * @param vectors the vectors to decode
+     * @param length the number of vectors to decode
+     * @param values the array where the objective function values are
+     * written
+     */
+    default void decodeInChunks(Vector[] vectors, int length, double[] values) {
+        if(length == 0)
+            return;
+        int size = (length+ForkJoinPool.getCommonPoolParallelism()-1)/ForkJoinPool.getCommonPoolParallelism();
+        int chunks = (length+size-1)/size;
+        if(chunks == 1)
+            decode(vectors, 0, length, values);
+        else
+            IntStream.range(0, chunks).parallel().forEach(chunk -> decode(vectors, chunk*size, Math.min((chunk+1)*size, length), values));
+    }
+}
@@ -0,0 +1,94 @@
+package heuristics;
+
+/**
+ * The management interface of the metrics of a batch, which aggregates the
+ * metrics of its heuristics.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ * @see Batch#registerMBeans(java.lang.String)
+ * @see HeuristicMXBean
+ */
+public interface BatchMXBean {
+
+    /**
+     * Returns the number of heuristics.
+     * @return the number of heuristics
+     */
+    int getHeuristicsCount();
+
+    /**
+     * Returns the number of iterations of all the heuristics.
+     * @return the number of iterations
+     */
+    long getIterations();
+
+    /**
+     * Returns the number of iterations per second of all the heuristics.
+     * @return the iterations per second
+     */
+    double getIterationsPerSecond();
+
+    /**
+     * Returns the minimum number of iterations since the last improvement of
+     * the incumbent vector of a heuristic.
+     * @return the number of iterations with no increment
+     */
+    int getIterationsWithNoIncrement();
+
+    /**
+     * Returns the number of decoder calls of all the heuristics.
+     * @return the number of decoder calls
+     */
+    long getDecoderCalls();
+
+    /**
+     * Returns the number of decoder calls per second of all the heuristics.
+     * @return the decoder calls per second
+     */
+    double getDecoderCallsPerSecond();
+
+    /**
+     * Returns the time spent by the decoder calls of all the heuristics, in
+     * nanoseconds.
+     * @return the decoder time
+     */
+    long getDecoderNanos();
+
+    /**
+     * Returns the time spent iterating by all the heuristics, in nanoseconds.
+     * @return the iteration time
+     */
+    long getIterationNanos();
+
+    /**
+     * Returns the iteration time of all the heuristics which was not spent by
+     * the decoder calls, in nanoseconds.
+     * @return the framework time
+     */
+    long getFrameworkNanos();
+
+    /**
+     * Returns the ratio between the decoder time and the iteration time of
+     * all the heuristics.
+     * @return the decoder time ratio
+     */
+    double getDecoderTimeRatio();
+
+    /**
+     * Returns the objective function value of the best vector among the
+     * heuristics, or NaN if it is unknown.
+     * @return the best objective function value
+     */
+    double getBestValue();
+
+    /**
+     * Returns the average number of bytes allocated per iteration by the
+     * heuristics, or -1 if the JVM doesn't measure them.
+     * @return the allocated bytes per iteration
+     */
+    double getAllocatedBytesPerIteration();
+
+    /**
+     * Resets the counters of all the heuristics.
+     */
+    void reset();
+}
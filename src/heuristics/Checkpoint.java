@@ -0,0 +1,306 @@
+package heuristics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * A checkpoint of the state of some heuristics, e.g., of the heuristics of a
+ * batch, stored into a file.
+ * Each heuristic writes its state into its own in-memory buffer, whose
+ * primitive arrays are copied in bulk, and then all the buffers are copied
+ * into a memory-mapped file. The file is made up by a header, i.e., a magic
+ * number, a version and the number of states, followed by the length and the
+ * bytes of each state. The magic number is written last, so that a file whose
+ * writing was interrupted is not a valid checkpoint. The file is written next
+ * to the checkpoint file and it replaces the checkpoint file by an atomic move
+ * only when it is complete, so that an interrupted writing never destroys the
+ * previous checkpoint.
+ * A checkpoint holds the state of the heuristics but not their components,
+ * e.g., the decoders and the neighborhoods: it is restored into heuristics
+ * constructed in the same way as the ones it was taken from.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ * @see Heuristic#checkpoint(heuristics.Checkpoint.Writer)
+ * @see Heuristic#restore(heuristics.Checkpoint.Reader)
+ */
+public final class Checkpoint {
+    private static final int MAGIC = 0x48434B50, VERSION = 1, HEADER = 12;
+
+    private Checkpoint() {
+    }
+
+    /**
+     * Writes the states into a file, which is created or replaced.
+     * The states are written into the file <i>file</i><tt>.tmp</tt>, which
+     * is then atomically moved to <i>file</i>.
+     * @param file the checkpoint file
+     * @param states the states to write
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Path file, Writer[] states) throws IOException {
+        long size = HEADER;
+        for(Writer state: states)
+            size += 4+state.buffer.position();
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                map.putInt(0).putInt(VERSION).putInt(states.length);
+                for(Writer state: states) {
+                    ByteBuffer bytes = state.buffer.duplicate();
+                    bytes.flip();
+                    map.putInt(bytes.remaining()).put(bytes);
+                }
+                map.force();
+                map.putInt(0, MAGIC);
+                map.force();
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch(IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the states stored into a file.
+     * @param file the checkpoint file
+     * @return the states, in the order they were written
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if the file is not a valid checkpoint
+     */
+    public static Reader[] read(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if(channel.size() < HEADER)
+                throw new IllegalArgumentException("The file is not a checkpoint");
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(map.getInt() != MAGIC)
+                throw new IllegalArgumentException("The file is not a complete checkpoint");
+            if(map.getInt() != VERSION)
+                throw new IllegalArgumentException("The checkpoint version is not supported");
+            Reader[] states = new Reader[map.getInt()];
+            for(int i=0; i<states.length; i++) {
+                int length = map.getInt();
+                ByteBuffer bytes = map.slice();
+                bytes.limit(length);
+                states[i] = new Reader(bytes);
+                map.position(map.position()+length);
+            }
+            return states;
+        }
+    }
+
+    /**
+     * A growable buffer where a heuristic writes its state.
+     */
+    public static final class Writer {
+        private ByteBuffer buffer;
+
+        /**
+         * Creates an empty state.
+         */
+        public Writer() {
+            buffer = ByteBuffer.allocate(1024);
+        }
+
+        private ByteBuffer reserve(int bytes) {
+            if(buffer.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity()*2, buffer.position()+bytes));
+                buffer.flip();
+                buffer = larger.put(buffer);
+            }
+            return buffer;
+        }
+
+        public Writer putInt(int value) {
+            reserve(4).putInt(value);
+            return this;
+        }
+
+        public Writer putLong(long value) {
+            reserve(8).putLong(value);
+            return this;
+        }
+
+        public Writer putFloat(float value) {
+            reserve(4).putFloat(value);
+            return this;
+        }
+
+        public Writer putDouble(double value) {
+            reserve(8).putDouble(value);
+            return this;
+        }
+
+        /**
+         * Writes a range of an array, copied in bulk.
+         * @param array the array
+         * @param offset the index of the first cell of the range
+         * @param length the range length
+         * @return the <i>this</i> instance
+         */
+        public Writer putDoubles(double[] array, int offset, int length) {
+            reserve(8*length).asDoubleBuffer().put(array, offset, length);
+            buffer.position(buffer.position()+8*length);
+            return this;
+        }
+
+        /**
+         * Writes a range of an array, copied in bulk.
+         * @param array the array
+         * @param offset the index of the first cell of the range
+         * @param length the range length
+         * @return the <i>this</i> instance
+         */
+        public Writer putInts(int[] array, int offset, int length) {
+            reserve(4*length).asIntBuffer().put(array, offset, length);
+            buffer.position(buffer.position()+4*length);
+            return this;
+        }
+
+        /**
+         * Writes a range of an array, copied in bulk.
+         * @param array the array
+         * @param offset the index of the first cell of the range
+         * @param length the range length
+         * @return the <i>this</i> instance
+         */
+        public Writer putLongs(long[] array, int offset, int length) {
+            reserve(8*length).asLongBuffer().put(array, offset, length);
+            buffer.position(buffer.position()+8*length);
+            return this;
+        }
+
+        public Writer putBytes(byte[] array) {
+            reserve(4+array.length).putInt(array.length).put(array);
+            return this;
+        }
+
+        /**
+         * Writes the length, the value and the contents of a vector.
+         * @param vector the vector
+         * @return the <i>this</i> instance
+         */
+        public Writer putVector(Vector vector) {
+            putInt(vector.length).putDouble(vector.getValue());
+            return putDoubles(vector.array, vector.offset, vector.length);
+        }
+
+        /**
+         * Writes the state of a random number generator, by means of its
+         * serialized form, so that the restored generator continues the same
+         * sequence.
+         * @param random the random number generator
+         * @return the <i>this</i> instance
+         */
+        public Writer putRandom(Random random) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(random);
+            } catch(IOException e) {
+                throw new IllegalArgumentException("The random number generator can't be saved", e);
+            }
+            return putBytes(bytes.toByteArray());
+        }
+    }
+
+    /**
+     * A buffer where a heuristic reads its state, in the same order it was
+     * written.
+     */
+    public static final class Reader {
+        private final ByteBuffer buffer;
+
+        private Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public int getInt() {
+            return buffer.getInt();
+        }
+
+        public long getLong() {
+            return buffer.getLong();
+        }
+
+        public float getFloat() {
+            return buffer.getFloat();
+        }
+
+        public double getDouble() {
+            return buffer.getDouble();
+        }
+
+        /**
+         * Reads a range of an array, copied in bulk.
+         * @param array the array
+         * @param offset the index of the first cell of the range
+         * @param length the range length
+         */
+        public void getDoubles(double[] array, int offset, int length) {
+            buffer.asDoubleBuffer().get(array, offset, length);
+            buffer.position(buffer.position()+8*length);
+        }
+
+        /**
+         * Reads a range of an array, copied in bulk.
+         * @param array the array
+         * @param offset the index of the first cell of the range
+         * @param length the range length
+         */
+        public void getInts(int[] array, int offset, int length) {
+            buffer.asIntBuffer().get(array, offset, length);
+            buffer.position(buffer.position()+4*length);
+        }
+
+        /**
+         * Reads a range of an array, copied in bulk.
+         * @param array the array
+         * @param offset the index of the first cell of the range
+         * @param length the range length
+         */
+        public void getLongs(long[] array, int offset, int length) {
+            buffer.asLongBuffer().get(array, offset, length);
+            buffer.position(buffer.position()+8*length);
+        }
+
+        public byte[] getBytes() {
+            byte[] array = new byte[buffer.getInt()];
+            buffer.get(array);
+            return array;
+        }
+
+        /**
+         * Reads a vector written by <i>putVector</i>.
+         * @return a new vector
+         */
+        public Vector getVector() {
+            Vector vector = new Vector(getInt());
+            vector.setValue(getDouble());
+            getDoubles(vector.array, 0, vector.length);
+            return vector;
+        }
+
+        /**
+         * Reads a random number generator written by <i>putRandom</i>.
+         * @return a new random number generator
+         */
+        public Random getRandom() {
+            try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(getBytes()))) {
+                return (Random) in.readObject();
+            } catch(IOException | ClassNotFoundException e) {
+                throw new IllegalArgumentException("The random number generator can't be restored", e);
+            }
+        }
+    }
+}
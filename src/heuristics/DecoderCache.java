@@ -0,0 +1,251 @@
+package heuristics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A bounded memoizing decoder.
+ * It wraps a decoder and remembers the objective function values of the last
+ * decoded vectors, keyed by the vector contents, so that a vector which is
+ * decoded again, e.g., a chromosome which is generated again or a solution
+ * which is visited again, costs a lookup instead of a decoding.
+ * Since it is a decoder itself, both boxed and primitive, it can be given to
+ * any heuristic or batch in place of the wrapped decoder, which can be boxed
+ * or primitive as well. The values are remembered as primitives, so that a
+ * lookup allocates nothing.
+ * The cache is split in segments, each one guarded by its own lock, and each
+ * segment evicts its entries with the CLOCK policy: an entry survives an
+ * eviction round if it was hit since the previous round. The wrapped decoder
+ * is always called outside of the locks, so that a slow decoding never blocks
+ * the other threads.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ */
+public class DecoderCache implements Function<Vector, Double>, ToDoubleFunction<Vector> {
+    private final ToDoubleFunction<? super Vector> decoder;
+    private final Segment[] segments;
+    private final LongAdder hits, misses;
+
+    /**
+     * Constructs a cache for the specified decoder.
+     * @param decoder the decoder to wrap
+     * @param capacity the maximum number of remembered vectors
+     */
+    public DecoderCache(Function<? super Vector, Double> decoder, int capacity) {
+        this((ToDoubleFunction<? super Vector>) decoder::apply, capacity);
+    }
+
+    /**
+     * Constructs a cache for the specified primitive decoder, so that no
+     * value is boxed.
+     * A lambda expression is given to this constructor rather than to the
+     * boxed one by declaring the type of its parameter, e.g.,
+     * <tt>(Vector v) -&gt; ...</tt>, or by casting it.
+     * @param decoder the decoder to wrap
+     * @param capacity the maximum number of remembered vectors
+     */
+    public DecoderCache(ToDoubleFunction<? super Vector> decoder, int capacity) {
+        if(capacity < 1)
+            throw new IllegalArgumentException("The cache capacity must be greater than 0");
+        this.decoder = decoder;
+        int count = Math.min(Integer.highestOneBit(Runtime.getRuntime().availableProcessors()*4), Integer.highestOneBit(capacity));
+        segments = new Segment[count];
+        for(int i=0; i<count; i++)
+            segments[i] = new Segment((capacity+count-1)/count);
+        hits = new LongAdder();
+        misses = new LongAdder();
+    }
+
+    /**
+     * Returns the objective function value of the vector, which is decoded
+     * only if it is not remembered.
+     * @param vector the vector to decode
+     * @return the objective function value
+     */
+    @Override
+    public Double apply(Vector vector) {
+        return applyAsDouble(vector);
+    }
+
+    /**
+     * Returns the objective function value of the vector, which is decoded
+     * only if it is not remembered.
+     * @param vector the vector to decode
+     * @return the objective function value
+     */
+    @Override
+    public double applyAsDouble(Vector vector) {
+        long hash = vector.longHashCode();
+        Segment segment = segments[(int)(hash >>> 32) & (segments.length-1)];
+        long bits = segment.get(hash, vector);
+        if(bits != Segment.MISS) {
+            hits.increment();
+            return Double.longBitsToDouble(bits);
+        }
+        misses.increment();
+        double decoded = decoder.applyAsDouble(vector);
+        segment.put(hash, vector, decoded);
+        return decoded;
+    }
+
+    /**
+     * Returns the number of decodings avoided since this cache creation.
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of decodings performed since this cache creation.
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of remembered vectors.
+     * @return the number of remembered vectors
+     */
+    public int size() {
+        int size = 0;
+        for(Segment segment: segments)
+            size += segment.size();
+        return size;
+    }
+
+    /**
+     * Forgets all the remembered vectors.
+     * The hit and miss counters are not reset.
+     */
+    public void clear() {
+        for(Segment segment: segments)
+            segment.clear();
+    }
+
+    /**
+     * A fixed number of entries indexed by an open addressing hash table.
+     * The entries keep a copy of the vector array, since the vectors are
+     * modified in place by the heuristics, and the bits of the value, whose
+     * NaNs are collapsed into the canonical one.
+     */
+    private static class Segment {
+        /**
+         * The result of a lookup which misses, i.e., a NaN which is never
+         * the bits of a value.
+         */
+        static final long MISS = 0x7ff0000000000001L;
+
+        private final long[] hashes;
+        private final double[][] keys;
+        private final long[] values;
+        private final boolean[] referenced;
+        private final int[] index;
+        private final int mask;
+        private int size, hand;
+
+        Segment(int capacity) {
+            hashes = new long[capacity];
+            keys = new double[capacity][];
+            values = new long[capacity];
+            referenced = new boolean[capacity];
+            index = new int[Integer.highestOneBit(capacity)*4];
+            Arrays.fill(index, -1);
+            mask = index.length-1;
+        }
+
+        /**
+         * Returns the bits of the value of the key, or <i>MISS</i> if the
+         * key is not remembered.
+         */
+        synchronized long get(long hash, Vector key) {
+            int entry = index[slot(hash, key)];
+            if(entry < 0)
+                return MISS;
+            referenced[entry] = true;
+            return values[entry];
+        }
+
+        synchronized void put(long hash, Vector key, double value) {
+            int slot = slot(hash, key);
+            if(index[slot] >= 0)
+                return;
+            int entry;
+            if(size < keys.length) {
+                entry = size++;
+            } else {
+                while(referenced[hand]) {
+                    referenced[hand] = false;
+                    hand = (hand+1)%keys.length;
+                }
+                entry = hand;
+                hand = (hand+1)%keys.length;
+                remove(slotOf(entry));
+                slot = slot(hash, key);
+            }
+            hashes[entry] = hash;
+            keys[entry] = Arrays.copyOfRange(key.array, key.offset, key.offset+key.length);
+            values[entry] = Double.doubleToLongBits(value);
+            referenced[entry] = false;
+            index[slot] = entry;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void clear() {
+            Arrays.fill(index, -1);
+            Arrays.fill(keys, null);
+            size = hand = 0;
+        }
+
+        /**
+         * Returns the index slot which refers to the key, or the empty slot
+         * where the key would be inserted.
+         */
+        private int slot(long hash, Vector key) {
+            int slot = (int)hash & mask;
+            while(index[slot] >= 0 && (hashes[index[slot]] != hash || !equals(keys[index[slot]], key)))
+                slot = (slot+1) & mask;
+            return slot;
+        }
+
+        /**
+         * Returns the index slot which refers to an entry.
+         */
+        private int slotOf(int entry) {
+            int slot = (int)hashes[entry] & mask;
+            while(index[slot] != entry)
+                slot = (slot+1) & mask;
+            return slot;
+        }
+
+        private static boolean equals(double[] array, Vector key) {
+            if(array.length != key.length)
+                return false;
+            for(int i=0; i<array.length; i++)
+                if(Double.doubleToLongBits(array[i]) != Double.doubleToLongBits(key.array[key.offset+i]))
+                    return false;
+            return true;
+        }
+
+        /**
+         * Empties an index slot, shifting back the following slots of its
+         * cluster so that no lookup is broken by the hole.
+         */
+        private void remove(int slot) {
+            int hole = slot;
+            for(int next = (hole+1) & mask; index[next] >= 0; next = (next+1) & mask) {
+                int home = (int)hashes[index[next]] & mask;
+                if(((next-home) & mask) >= ((next-hole) & mask)) {
+                    index[hole] = index[next];
+                    hole = next;
+                }
+            }
+            index[hole] = -1;
+        }
+    }
+}
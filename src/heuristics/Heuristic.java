@@ -3,6 +3,7 @@ package heuristics;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BooleanSupplier;
 
 /**
  * An abstraction representation of a heuristic
@@ -11,21 +12,32 @@ import java.util.Map;
 public abstract class Heuristic {
     private int iterations, iterationsWithNoIncrement;
     private final Map<Double, Long> history;
-    private final long initTime;
-    private Vector bestVector;
+    private long initTime, initNanoTime;
+    private volatile Incumbent best;
+    private volatile SharedIncumbent shared;
+    private final HeuristicMetrics metrics;
+    private int batchIndex = -1;
 
     /**
      * Updates the incumbent vector.
-     * Sets the best vector with its objective function value, reset the counter
-     * of iterations with no increment and logs that objective function value
-     * as reached at the current time, in milliseconds.
+     * Takes a snapshot of the best vector with its objective function value,
+     * reset the counter of iterations with no increment and logs that
+     * objective function value as reached at the current time, in
+     * milliseconds. The best vector is copied, so it can be modified
+     * afterwards. If the heuristic shares an incumbent vector, the snapshot
+     * is offered to it. The improvement is recorded as a Flight Recorder
+     * event.
      * @param bestVector the incumbent vector
      */
     protected void updateBest(Vector bestVector) {
-        double bestValue = bestVector.getValue();
-        history.put(bestValue, System.currentTimeMillis()-initTime);
-        this.bestVector = bestVector;
+        Incumbent best = new Incumbent(bestVector, iterations, System.nanoTime()-initNanoTime);
+        history.put(best.getValue(), System.currentTimeMillis()-initTime);
+        HeuristicEvents.Improvement.commit(this, this.best, best);
+        this.best = best;
         iterationsWithNoIncrement = 0;
+        SharedIncumbent shared = this.shared;
+        if(shared != null)
+            shared.offer(best);
     }
     
     /**
@@ -33,9 +45,58 @@ public abstract class Heuristic {
      * Each call to this method costs a copy of the incumbent vector, i.e., it
      * is linear in the vector length.
      * @return a copy of the incumbent vector
+     * @see #getBest() 
      */
     public final Vector getBestVector() {
-        return new Vector(bestVector);
+        return best.toVector();
+    }
+
+    /**
+     * Returns the objective function value of the incumbent vector.
+     * Unlike <i>getBestVector</i>, it costs no copy.
+     * @return the objective function value of the incumbent vector
+     */
+    public final double getBestValue() {
+        return best.getValue();
+    }
+
+    /**
+     * Returns the immutable snapshot of the incumbent vector, which is taken
+     * only when the incumbent vector changes.
+     * Unlike <i>getBestVector</i>, it costs no copy and it can be called by
+     * any thread while the heuristic is iterating.
+     * @return the snapshot of the incumbent vector
+     */
+    public final Incumbent getBest() {
+        return best;
+    }
+
+    /**
+     * Makes the heuristic share its incumbent vector, which is offered to the
+     * shared incumbent now and whenever it changes.
+     * @param shared the shared incumbent, or null to stop sharing
+     */
+    public final void share(SharedIncumbent shared) {
+        this.shared = shared;
+        if(shared != null && best != null)
+            shared.offer(best);
+    }
+
+    /**
+     * Returns the best snapshot among the heuristics which share their
+     * incumbent vector with this one, e.g., the heuristics of the same batch.
+     * It costs a single volatile read, so it can be called at every
+     * iteration. If the heuristic doesn't share its incumbent vector, its own
+     * snapshot is returned.
+     * @return the shared snapshot of the incumbent vector
+     * @see #share(heuristics.SharedIncumbent) 
+     */
+    public final Incumbent getSharedBest() {
+        SharedIncumbent shared = this.shared;
+        if(shared == null)
+            return best;
+        Incumbent sharedBest = shared.get();
+        return sharedBest == null ? best : sharedBest;
     }
     
     /**
@@ -48,7 +109,75 @@ public abstract class Heuristic {
 
     public Heuristic() {
         history = new HashMap<>();
+        metrics = new HeuristicMetrics(this);
         initTime = System.currentTimeMillis();
+        initNanoTime = System.nanoTime();
+    }
+
+    /**
+     * Writes the state of the heuristic into a checkpoint.
+     * The state is made up by the iteration counters, the elapsed time, the
+     * incumbent vector and the history, followed by the state written by
+     * <i>writeState</i>. The heuristic must not be iterating, e.g., the
+     * caller holds the monitor of the heuristic, which is held by each of its
+     * iterations performed by <i>iterate(int, BooleanSupplier)</i>.
+     * @param out the state to write
+     * @see Checkpoint
+     */
+    public final void checkpoint(Checkpoint.Writer out) {
+        out.putInt(iterations).putInt(iterationsWithNoIncrement);
+        out.putLong(System.currentTimeMillis()-initTime).putLong(System.nanoTime()-initNanoTime);
+        Incumbent best = this.best;
+        out.putInt(best.getIterations()).putLong(best.getElapsedNanos()).putVector(best.toVector());
+        out.putInt(history.size());
+        for(Map.Entry<Double, Long> entry: history.entrySet())
+            out.putDouble(entry.getKey()).putLong(entry.getValue());
+        writeState(out);
+    }
+
+    /**
+     * Restores the state of the heuristic from a checkpoint, so that the
+     * heuristic continues from where the checkpointed one was.
+     * The heuristic must be constructed in the same way as the checkpointed
+     * one and it must not be iterating, e.g., the caller holds the monitor
+     * of the heuristic.
+     * @param in the state to read
+     * @see #checkpoint(heuristics.Checkpoint.Writer) 
+     */
+    public final void restore(Checkpoint.Reader in) {
+        iterations = in.getInt();
+        iterationsWithNoIncrement = in.getInt();
+        initTime = System.currentTimeMillis()-in.getLong();
+        initNanoTime = System.nanoTime()-in.getLong();
+        int bestIterations = in.getInt();
+        long bestElapsed = in.getLong();
+        Incumbent best = new Incumbent(in.getVector(), bestIterations, bestElapsed);
+        history.clear();
+        for(int i=in.getInt(); i>0; i--)
+            history.put(in.getDouble(), in.getLong());
+        readState(in);
+        this.best = best;
+        SharedIncumbent shared = this.shared;
+        if(shared != null)
+            shared.offer(best);
+    }
+
+    /**
+     * Writes the state of the subclass into a checkpoint, e.g., its current
+     * vector and its random number generator.
+     * By default, it writes nothing.
+     * @param out the state to write
+     */
+    protected void writeState(Checkpoint.Writer out) {
+    }
+
+    /**
+     * Reads the state of the subclass from a checkpoint, in the same order
+     * it was written by <i>writeState</i>.
+     * By default, it reads nothing.
+     * @param in the state to read
+     */
+    protected void readState(Checkpoint.Reader in) {
     }
     
     /**
@@ -58,7 +187,70 @@ public abstract class Heuristic {
      * @see Heuristic#iterate() 
      */
     public void iterateUntilStoppingCriterion() {
-        while(!Thread.currentThread().isInterrupted() && iterate()) {}
+        iterate(-1, () -> Thread.currentThread().isInterrupted());
+    }
+
+    /**
+     * Performs the specified number of iterations, or iterates until the
+     * stopping criterion if <i>iterations</i> is negative, unless it is
+     * stopped before. The run is measured by the metrics, if they are
+     * enabled, and each iteration is a Flight Recorder event. Each iteration
+     * holds the monitor of the heuristic, so that its state can be saved or
+     * changed by other threads between two iterations.
+     * @return true if all the iterations were performed, false if the
+     * heuristic stopped or it was stopped
+     */
+    final boolean iterate(int iterations, BooleanSupplier stop) {
+        metrics.runStarted();
+        try {
+            for(int e=0; iterations < 0 || e < iterations; e++) {
+                if(stop.getAsBoolean())
+                    return false;
+                HeuristicEvents.Iteration event = HeuristicEvents.Iteration.begin();
+                synchronized(this) {
+                    if(!iterate())
+                        return false;
+                }
+                event.end(this);
+            }
+            return true;
+        } finally {
+            metrics.runStopped();
+        }
+    }
+
+    /**
+     * Returns the index of the heuristic in its batch, or -1 if it doesn't
+     * belong to a batch.
+     */
+    final int getBatchIndex() {
+        return batchIndex;
+    }
+
+    final void setBatchIndex(int batchIndex) {
+        this.batchIndex = batchIndex;
+    }
+
+    /**
+     * Returns the metrics of the heuristic, which can be registered as an
+     * MXBean. They are disabled until they are enabled, e.g., by
+     * <i>Batch.registerMBeans</i>.
+     * @return the metrics of the heuristic
+     * @see Batch#registerMBeans(java.lang.String) 
+     */
+    public final HeuristicMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the objective function value of the current vector, e.g., of the
+     * vector the heuristic is moving from, which can be read by any thread
+     * while the heuristic is iterating.
+     * By default, it is the objective function value of the incumbent vector.
+     * @return the objective function value of the current vector
+     */
+    public double getCurrentValue() {
+        return getBestValue();
     }
     
     /**
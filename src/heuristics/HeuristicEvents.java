@@ -0,0 +1,374 @@
+package heuristics;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The Flight Recorder events of the heuristics.
+ * The iterations, the evaluations and the rankings are duration events which
+ * are recorded only if they last more than a threshold, which can be lowered
+ * by the recording settings, e.g., <tt>heuristics.Iteration#threshold=0 ms
+ * </tt>. The improvements of the incumbent vectors are always recorded. Each
+ * event carries the type of its heuristic and the index of the heuristic in
+ * its batch, so that a recording can be correlated with the events of the
+ * JDK, e.g., the CPU load, the garbage collections and the monitor waits of
+ * the worker threads.<br>
+ * The events are defined at runtime by the <tt>jdk.jfr.EventFactory</tt>, so
+ * that the heuristics don't depend on the <tt>jdk.jfr</tt> module and they
+ * still run where it isn't available, e.g., on a Java 8 runtime without
+ * Flight Recorder, where the events are never recorded. An event is started
+ * by the <i>begin</i> method of its class, which allocates nothing when no
+ * recording is running: it returns a shared instance whose methods do
+ * nothing.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ * @see Heuristic#iterateUntilStoppingCriterion()
+ */
+public final class HeuristicEvents {
+    private static final Field HEURISTIC_TYPE = new Field(String.class, "heuristicType", "Heuristic Type", null);
+    private static final Field BATCH_INDEX = new Field(int.class, "batchIndex", "Batch Index", "The index of the heuristic in its batch, or -1");
+    private static final Field ITERATION = new Field(int.class, "iteration", "Iteration", null);
+
+    private static final Type ITERATION_TYPE = new Type("heuristics.Iteration", "Heuristic Iteration", "10 ms",
+            HEURISTIC_TYPE, BATCH_INDEX, ITERATION,
+            new Field(double.class, "bestValue", "Best Value", null));
+    private static final Type EVALUATION_TYPE = new Type("heuristics.Evaluation", "Heuristic Evaluation", "1 ms",
+            HEURISTIC_TYPE, BATCH_INDEX, ITERATION,
+            new Field(String.class, "target", "Target", "The evaluated vectors, e.g., neighborhood or population"));
+    private static final Type RANKING_TYPE = new Type("heuristics.Ranking", "Heuristic Ranking", "1 ms",
+            HEURISTIC_TYPE, BATCH_INDEX, ITERATION);
+    private static final Type IMPROVEMENT_TYPE = new Type("heuristics.Improvement", "Heuristic Improvement", null,
+            HEURISTIC_TYPE, BATCH_INDEX, ITERATION,
+            new Field(double.class, "value", "Value", null),
+            new Field(double.class, "previousValue", "Previous Value", "The value of the previous incumbent vector, or NaN"),
+            new Field(long.class, "elapsed", "Elapsed Time", "The time since the heuristic started", true));
+
+    private static final MethodHandle ITERATION_ENABLED = ITERATION_TYPE.isEnabled;
+    private static final MethodHandle EVALUATION_ENABLED = EVALUATION_TYPE.isEnabled;
+    private static final MethodHandle RANKING_ENABLED = RANKING_TYPE.isEnabled;
+    private static final MethodHandle IMPROVEMENT_ENABLED = IMPROVEMENT_TYPE.isEnabled;
+
+    private HeuristicEvents() {
+    }
+
+    /**
+     * An iteration of a heuristic, recorded when it is iterated by a batch or
+     * until its stopping criterion.
+     */
+    public static final class Iteration {
+        private static final Iteration DISABLED = new Iteration(null);
+        private final Object event;
+
+        private Iteration(Object event) {
+            this.event = event;
+        }
+
+        /**
+         * Starts an iteration.
+         * @return the started iteration, or a shared instance which records
+         * nothing if the event is disabled
+         */
+        public static Iteration begin() {
+            if(!isEnabled(ITERATION_ENABLED))
+                return DISABLED;
+            Object event = ITERATION_TYPE.newEvent();
+            Jfr.begin(event);
+            return new Iteration(event);
+        }
+
+        void end(Heuristic heuristic) {
+            if(Jfr.end(event)) {
+                Jfr.set(event, 0, heuristic.getClass().getSimpleName());
+                Jfr.set(event, 1, heuristic.getBatchIndex());
+                Jfr.set(event, 2, heuristic.getIterations());
+                Jfr.set(event, 3, heuristic.getBestValue());
+                Jfr.commit(event);
+            }
+        }
+    }
+
+    /**
+     * The evaluation of a set of vectors within an iteration, e.g., of a
+     * neighborhood or of the new individuals of a population.
+     */
+    public static final class Evaluation {
+        private static final Evaluation DISABLED = new Evaluation(null);
+        private final Object event;
+
+        private Evaluation(Object event) {
+            this.event = event;
+        }
+
+        /**
+         * Starts an evaluation.
+         * @return the started evaluation, or a shared instance which records
+         * nothing if the event is disabled
+         */
+        public static Evaluation begin() {
+            if(!isEnabled(EVALUATION_ENABLED))
+                return DISABLED;
+            Object event = EVALUATION_TYPE.newEvent();
+            Jfr.begin(event);
+            return new Evaluation(event);
+        }
+
+        /**
+         * Ends the evaluation and records it, if it lasted enough.
+         * @param heuristic the evaluating heuristic
+         * @param target the description of the evaluated vectors
+         */
+        public void end(Heuristic heuristic, String target) {
+            if(Jfr.end(event)) {
+                Jfr.set(event, 0, heuristic.getClass().getSimpleName());
+                Jfr.set(event, 1, heuristic.getBatchIndex());
+                Jfr.set(event, 2, heuristic.getIterations());
+                Jfr.set(event, 3, target);
+                Jfr.commit(event);
+            }
+        }
+    }
+
+    /**
+     * The ranking of a set of vectors within an iteration, e.g., the sort of
+     * the elite individuals of a population.
+     */
+    public static final class Ranking {
+        private static final Ranking DISABLED = new Ranking(null);
+        private final Object event;
+
+        private Ranking(Object event) {
+            this.event = event;
+        }
+
+        /**
+         * Starts a ranking.
+         * @return the started ranking, or a shared instance which records
+         * nothing if the event is disabled
+         */
+        public static Ranking begin() {
+            if(!isEnabled(RANKING_ENABLED))
+                return DISABLED;
+            Object event = RANKING_TYPE.newEvent();
+            Jfr.begin(event);
+            return new Ranking(event);
+        }
+
+        /**
+         * Ends the ranking and records it, if it lasted enough.
+         * @param heuristic the ranking heuristic
+         */
+        public void end(Heuristic heuristic) {
+            if(Jfr.end(event)) {
+                Jfr.set(event, 0, heuristic.getClass().getSimpleName());
+                Jfr.set(event, 1, heuristic.getBatchIndex());
+                Jfr.set(event, 2, heuristic.getIterations());
+                Jfr.commit(event);
+            }
+        }
+    }
+
+    /**
+     * An improvement of the incumbent vector of a heuristic.
+     */
+    public static final class Improvement {
+
+        private Improvement() {
+        }
+
+        static void commit(Heuristic heuristic, Incumbent previous, Incumbent best) {
+            if(!isEnabled(IMPROVEMENT_ENABLED))
+                return;
+            Object event = IMPROVEMENT_TYPE.newEvent();
+            Jfr.set(event, 0, heuristic.getClass().getSimpleName());
+            Jfr.set(event, 1, heuristic.getBatchIndex());
+            Jfr.set(event, 2, best.getIterations());
+            Jfr.set(event, 3, best.getValue());
+            Jfr.set(event, 4, previous == null ? Double.NaN : previous.getValue());
+            Jfr.set(event, 5, best.getElapsedNanos());
+            Jfr.commit(event);
+        }
+    }
+
+    /**
+     * Returns true if an event type is enabled, i.e., if a running recording
+     * records it. The handle is held by a constant, so that the check is
+     * inlined and it costs a field read of the event type, or nothing if
+     * Flight Recorder isn't available.
+     */
+    private static boolean isEnabled(MethodHandle isEnabled) {
+        try {
+            return (boolean) isEnabled.invokeExact();
+        } catch(Throwable e) {
+            throw unchecked(e);
+        }
+    }
+
+    /**
+     * A field of an event, whose index is its position among the fields of
+     * the event.
+     */
+    private static final class Field {
+        private final Class<?> type;
+        private final String name, label, description;
+        private final boolean nanoseconds;
+
+        Field(Class<?> type, String name, String label, String description) {
+            this(type, name, label, description, false);
+        }
+
+        Field(Class<?> type, String name, String label, String description, boolean nanoseconds) {
+            this.type = type;
+            this.name = name;
+            this.label = label;
+            this.description = description;
+            this.nanoseconds = nanoseconds;
+        }
+    }
+
+    /**
+     * An event type registered by the <tt>jdk.jfr.EventFactory</tt>, or a
+     * type which is never enabled if Flight Recorder isn't available.
+     */
+    private static final class Type {
+        private final MethodHandle isEnabled, newEvent;
+
+        Type(String name, String label, String threshold, Field... fields) {
+            MethodHandle isEnabled = MethodHandles.constant(boolean.class, false), newEvent = null;
+            if(Jfr.AVAILABLE) {
+                try {
+                    List<Object> annotations = new ArrayList<>();
+                    annotations.add(Jfr.annotation("Name", name));
+                    annotations.add(Jfr.annotation("Label", label));
+                    annotations.add(Jfr.annotation("Category", new String[] {"Heuristics"}));
+                    if(threshold != null)
+                        annotations.add(Jfr.annotation("Threshold", threshold));
+                    annotations.add(Jfr.annotation("StackTrace", false));
+                    List<Object> values = new ArrayList<>();
+                    for(Field field: fields) {
+                        List<Object> fieldAnnotations = new ArrayList<>();
+                        fieldAnnotations.add(Jfr.annotation("Label", field.label));
+                        if(field.description != null)
+                            fieldAnnotations.add(Jfr.annotation("Description", field.description));
+                        if(field.nanoseconds)
+                            fieldAnnotations.add(Jfr.annotation("Timespan", "NANOSECONDS"));
+                        values.add(Jfr.valueDescriptor.newInstance(field.type, field.name, fieldAnnotations));
+                    }
+                    Object factory = Jfr.create.invoke(null, annotations, values);
+                    Object eventType = Jfr.getEventType.invoke(factory);
+                    isEnabled = Jfr.LOOKUP.unreflect(Jfr.isEnabled).bindTo(eventType);
+                    newEvent = Jfr.LOOKUP.unreflect(Jfr.newEvent).bindTo(factory).asType(MethodType.methodType(Object.class));
+                } catch(ReflectiveOperationException | RuntimeException e) {
+                    isEnabled = MethodHandles.constant(boolean.class, false);
+                    newEvent = null;
+                }
+            }
+            this.isEnabled = isEnabled;
+            this.newEvent = newEvent;
+        }
+
+        /**
+         * Returns a new event of this type, which must be enabled.
+         */
+        Object newEvent() {
+            try {
+                return (Object) newEvent.invokeExact();
+            } catch(Throwable e) {
+                throw unchecked(e);
+            }
+        }
+    }
+
+    /**
+     * The reflective access to the <tt>jdk.jfr</tt> API, which is loaded only
+     * if it is available.
+     */
+    private static final class Jfr {
+        private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+        private static final boolean AVAILABLE;
+        private static Constructor<?> annotationElement, valueDescriptor;
+        private static Method create, getEventType, isEnabled, newEvent;
+        private static MethodHandle begin, end, shouldCommit, set, commit;
+
+        static {
+            boolean available;
+            try {
+                Class<?> event = Class.forName("jdk.jfr.Event");
+                Class<?> eventFactory = Class.forName("jdk.jfr.EventFactory");
+                annotationElement = Class.forName("jdk.jfr.AnnotationElement").getConstructor(Class.class, Object.class);
+                valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class, String.class, List.class);
+                create = eventFactory.getMethod("create", List.class, List.class);
+                getEventType = eventFactory.getMethod("getEventType");
+                isEnabled = Class.forName("jdk.jfr.EventType").getMethod("isEnabled");
+                newEvent = eventFactory.getMethod("newEvent");
+                MethodType action = MethodType.methodType(void.class, Object.class);
+                begin = LOOKUP.unreflect(event.getMethod("begin")).asType(action);
+                end = LOOKUP.unreflect(event.getMethod("end")).asType(action);
+                shouldCommit = LOOKUP.unreflect(event.getMethod("shouldCommit")).asType(MethodType.methodType(boolean.class, Object.class));
+                set = LOOKUP.unreflect(event.getMethod("set", int.class, Object.class)).asType(MethodType.methodType(void.class, Object.class, int.class, Object.class));
+                commit = LOOKUP.unreflect(event.getMethod("commit")).asType(action);
+                available = true;
+            } catch(ReflectiveOperationException | RuntimeException | LinkageError e) {
+                available = false;
+            }
+            AVAILABLE = available;
+        }
+
+        private static Object annotation(String type, Object value) throws ReflectiveOperationException {
+            return annotationElement.newInstance(Class.forName("jdk.jfr." + type).asSubclass(Annotation.class), value);
+        }
+
+        static void begin(Object event) {
+            if(event != null) {
+                try {
+                    begin.invokeExact(event);
+                } catch(Throwable e) {
+                    throw unchecked(e);
+                }
+            }
+        }
+
+        /**
+         * Ends an event and returns true if it should be committed, i.e., if
+         * it lasted enough.
+         */
+        static boolean end(Object event) {
+            if(event == null)
+                return false;
+            try {
+                end.invokeExact(event);
+                return (boolean) shouldCommit.invokeExact(event);
+            } catch(Throwable e) {
+                throw unchecked(e);
+            }
+        }
+
+        static void set(Object event, int index, Object value) {
+            try {
+                set.invokeExact(event, index, value);
+            } catch(Throwable e) {
+                throw unchecked(e);
+            }
+        }
+
+        static void commit(Object event) {
+            try {
+                commit.invokeExact(event);
+            } catch(Throwable e) {
+                throw unchecked(e);
+            }
+        }
+    }
+
+    private static RuntimeException unchecked(Throwable e) {
+        if(e instanceof Error)
+            throw (Error) e;
+        if(e instanceof RuntimeException)
+            return (RuntimeException) e;
+        return new IllegalStateException(e);
+    }
+}
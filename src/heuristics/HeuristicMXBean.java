@@ -0,0 +1,131 @@
+package heuristics;
+
+/**
+ * The management interface of the metrics of a heuristic.
+ * The counters and the rates refer to the time since the metrics were last
+ * enabled or reset.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ * @see HeuristicMetrics
+ */
+public interface HeuristicMXBean {
+
+    /**
+     * Returns the simple name of the heuristic class.
+     * @return the heuristic type
+     */
+    String getType();
+
+    /**
+     * Returns true if the metrics are collected.
+     * @return true if the metrics are enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Enables or disables the collection of the metrics. Enabling the
+     * metrics resets them.
+     * @param enabled true to collect the metrics
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Returns the number of iterations.
+     * @return the number of iterations
+     */
+    long getIterations();
+
+    /**
+     * Returns the average number of iterations per second of wall time.
+     * @return the iterations per second
+     */
+    double getIterationsPerSecond();
+
+    /**
+     * Returns the number of iterations since the last improvement of the
+     * incumbent vector.
+     * @return the number of iterations with no increment
+     * @see Heuristic#getIterationsWithNoIncrement()
+     */
+    int getIterationsWithNoIncrement();
+
+    /**
+     * Returns the number of decoder calls, delta evaluations included.
+     * @return the number of decoder calls
+     */
+    long getDecoderCalls();
+
+    /**
+     * Returns the average number of decoder calls per second of wall time.
+     * @return the decoder calls per second
+     */
+    double getDecoderCallsPerSecond();
+
+    /**
+     * Returns the time spent by the decoder calls, in nanoseconds, summed over
+     * the threads which performed them.
+     * @return the decoder time
+     */
+    long getDecoderNanos();
+
+    /**
+     * Returns the wall time spent iterating, in nanoseconds.
+     * @return the iteration time
+     */
+    long getIterationNanos();
+
+    /**
+     * Returns the iteration time which was not spent by the decoder calls,
+     * in nanoseconds, i.e., the time spent by the heuristic itself. It is 0
+     * when the decoder calls are performed in parallel and they take longer
+     * than the iterations.
+     * @return the framework time
+     */
+    long getFrameworkNanos();
+
+    /**
+     * Returns the ratio between the decoder time and the iteration time. A
+     * ratio greater than 1 means that the decoder calls are performed in
+     * parallel.
+     * @return the decoder time ratio
+     */
+    double getDecoderTimeRatio();
+
+    /**
+     * Returns the objective function value of the current vector.
+     * @return the current objective function value
+     * @see Heuristic#getCurrentValue()
+     */
+    double getCurrentValue();
+
+    /**
+     * Returns the objective function value of the incumbent vector.
+     * @return the best objective function value
+     */
+    double getBestValue();
+
+    /**
+     * Returns the average number of neighbors generated per iteration, or 0
+     * if the heuristic doesn't explore neighborhoods.
+     * @return the neighborhood size
+     */
+    double getNeighborsPerIteration();
+
+    /**
+     * Returns the number of bytes allocated by the threads while iterating
+     * the heuristic, or -1 if the JVM doesn't measure them.
+     * @return the allocated bytes
+     */
+    long getAllocatedBytes();
+
+    /**
+     * Returns the average number of bytes allocated per iteration, or -1 if
+     * the JVM doesn't measure them.
+     * @return the allocated bytes per iteration
+     */
+    double getAllocatedBytesPerIteration();
+
+    /**
+     * Resets the counters.
+     */
+    void reset();
+}
@@ -0,0 +1,285 @@
+package heuristics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+/**
+ * The runtime metrics of a heuristic, which can be registered as an MXBean.
+ * The metrics are collected only while they are enabled, so that a disabled
+ * instrumentation costs a volatile read per decoder call. The counters which
+ * are updated by the hot loops, possibly by many threads at once, e.g., the
+ * decoder calls of a parallel evaluation, are striped counters: an update
+ * doesn't contend with the others and the counters are summed only when they
+ * are read.
+ * The iteration time and the allocated bytes are measured once per run of
+ * iterations, e.g., once per step of a batch, from the thread which
+ * iterates the heuristic: the bytes allocated by the other threads, e.g., by
+ * a parallel evaluation, are not measured.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ * @see Heuristic#getMetrics()
+ */
+public final class HeuristicMetrics implements HeuristicMXBean {
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+    private final Heuristic heuristic;
+    private final LongAdder decoderCalls, decoderNanos, neighbors;
+    private volatile boolean enabled;
+    private long resetAt, iterationNanos, allocatedBytes, measuredIterations;
+    private int resetIterations;
+    private Thread runner;
+    private long runStartedAt, runAllocatedAt;
+    private int runIterationsAt;
+
+    HeuristicMetrics(Heuristic heuristic) {
+        this.heuristic = heuristic;
+        decoderCalls = new LongAdder();
+        decoderNanos = new LongAdder();
+        neighbors = new LongAdder();
+        resetAt = System.nanoTime();
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if(threads instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported())
+            return (com.sun.management.ThreadMXBean) threads;
+        return null;
+    }
+
+    private static long allocatedBytes(Thread thread) {
+        return THREADS == null ? -1 : THREADS.getThreadAllocatedBytes(thread.getId());
+    }
+
+    /**
+     * Wraps a decoder so that its calls and their time are counted while the
+     * metrics are enabled. A batch decoder is wrapped into a batch decoder.
+     * @param decoder the decoder to wrap
+     * @return the instrumented decoder
+     * @see #instrument(heuristics.BatchDecoder) 
+     */
+    public ToDoubleFunction<Vector> instrument(ToDoubleFunction<? super Vector> decoder) {
+        if(decoder instanceof BatchDecoder)
+            return instrument((BatchDecoder) decoder);
+        return vector -> {
+            if(!enabled)
+                return decoder.applyAsDouble(vector);
+            long startedAt = System.nanoTime();
+            double value = decoder.applyAsDouble(vector);
+            decoded(startedAt);
+            return value;
+        };
+    }
+
+    /**
+     * Wraps a batch decoder so that its calls and their time are counted
+     * while the metrics are enabled. A chunk counts as a call for each of its
+     * vectors.
+     * @param decoder the batch decoder to wrap
+     * @return the instrumented batch decoder
+     */
+    public BatchDecoder instrument(BatchDecoder decoder) {
+        return new BatchDecoder() {
+            @Override
+            public void decode(Vector[] vectors, int from, int to, double[] values) {
+                if(!enabled) {
+                    decoder.decode(vectors, from, to, values);
+                    return;
+                }
+                long startedAt = System.nanoTime();
+                decoder.decode(vectors, from, to, values);
+                decoded(startedAt, to-from);
+            }
+
+            @Override
+            public double applyAsDouble(Vector vector) {
+                if(!enabled)
+                    return decoder.applyAsDouble(vector);
+                long startedAt = System.nanoTime();
+                double value = decoder.applyAsDouble(vector);
+                decoded(startedAt);
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Counts a decoder call, or a delta evaluation, which started at the
+     * specified time.
+     * @param startedAt the start time of the call, in the time scale of
+     * <i>System.nanoTime</i>
+     */
+    public void decoded(long startedAt) {
+        decoded(startedAt, 1);
+    }
+
+    /**
+     * Counts the decoder calls of a chunk of vectors which was decoded at
+     * once, starting at the specified time.
+     * @param startedAt the start time of the chunk, in the time scale of
+     * <i>System.nanoTime</i>
+     * @param calls the number of vectors of the chunk
+     */
+    public void decoded(long startedAt, int calls) {
+        decoderNanos.add(System.nanoTime()-startedAt);
+        decoderCalls.add(calls);
+    }
+
+    /**
+     * Wraps a neighborhood so that its neighbors are counted while the
+     * metrics are enabled.
+     * @param <T> the type of the neighbors
+     * @param neighborhood the stream of the neighbors
+     * @return the counted stream of the neighbors
+     */
+    public <T> Stream<T> countNeighbors(Stream<T> neighborhood) {
+        if(!enabled)
+            return neighborhood;
+        return neighborhood.peek(neighbor -> neighbors.increment());
+    }
+
+    /**
+     * Starts measuring a run of iterations, on the thread which iterates the
+     * heuristic.
+     */
+    synchronized void runStarted() {
+        if(!enabled)
+            return;
+        runner = Thread.currentThread();
+        runStartedAt = System.nanoTime();
+        runAllocatedAt = allocatedBytes(runner);
+        runIterationsAt = heuristic.getIterations();
+    }
+
+    /**
+     * Stops measuring the current run of iterations, if any.
+     */
+    synchronized void runStopped() {
+        if(runner == null)
+            return;
+        iterationNanos += System.nanoTime()-runStartedAt;
+        allocatedBytes += allocatedBytes(runner)-runAllocatedAt;
+        measuredIterations += heuristic.getIterations()-runIterationsAt;
+        runner = null;
+    }
+
+    @Override
+    public String getType() {
+        return heuristic.getClass().getSimpleName();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        if(enabled && !this.enabled)
+            reset();
+        this.enabled = enabled;
+    }
+
+    @Override
+    public synchronized long getIterations() {
+        return Math.max(heuristic.getIterations()-resetIterations, 0);
+    }
+
+    @Override
+    public double getIterationsPerSecond() {
+        return perSecond(getIterations());
+    }
+
+    @Override
+    public int getIterationsWithNoIncrement() {
+        return heuristic.getIterationsWithNoIncrement();
+    }
+
+    @Override
+    public long getDecoderCalls() {
+        return decoderCalls.sum();
+    }
+
+    @Override
+    public double getDecoderCallsPerSecond() {
+        return perSecond(getDecoderCalls());
+    }
+
+    @Override
+    public long getDecoderNanos() {
+        return decoderNanos.sum();
+    }
+
+    @Override
+    public synchronized long getIterationNanos() {
+        return runner == null ? iterationNanos : iterationNanos+System.nanoTime()-runStartedAt;
+    }
+
+    @Override
+    public long getFrameworkNanos() {
+        return Math.max(getIterationNanos()-getDecoderNanos(), 0);
+    }
+
+    @Override
+    public double getDecoderTimeRatio() {
+        long iterationNanos = getIterationNanos();
+        return iterationNanos == 0 ? 0 : (double) getDecoderNanos()/iterationNanos;
+    }
+
+    @Override
+    public double getCurrentValue() {
+        return heuristic.getCurrentValue();
+    }
+
+    @Override
+    public double getBestValue() {
+        return heuristic.getBestValue();
+    }
+
+    @Override
+    public double getNeighborsPerIteration() {
+        long iterations = getIterations();
+        return iterations == 0 ? 0 : (double) neighbors.sum()/iterations;
+    }
+
+    @Override
+    public synchronized long getAllocatedBytes() {
+        if(THREADS == null)
+            return -1;
+        return runner == null ? allocatedBytes : allocatedBytes+allocatedBytes(runner)-runAllocatedAt;
+    }
+
+    @Override
+    public synchronized double getAllocatedBytesPerIteration() {
+        long allocatedBytes = getAllocatedBytes(), iterations = getMeasuredIterations();
+        if(allocatedBytes < 0)
+            return -1;
+        return iterations == 0 ? 0 : (double) allocatedBytes/iterations;
+    }
+
+    /**
+     * Returns the number of iterations whose allocated bytes were measured.
+     */
+    synchronized long getMeasuredIterations() {
+        return runner == null ? measuredIterations : measuredIterations+heuristic.getIterations()-runIterationsAt;
+    }
+
+    @Override
+    public synchronized void reset() {
+        decoderCalls.reset();
+        decoderNanos.reset();
+        neighbors.reset();
+        resetAt = System.nanoTime();
+        resetIterations = heuristic.getIterations();
+        iterationNanos = allocatedBytes = measuredIterations = 0;
+        if(runner != null) {
+            runStartedAt = resetAt;
+            runAllocatedAt = allocatedBytes(runner);
+            runIterationsAt = resetIterations;
+        }
+    }
+
+    private synchronized double perSecond(long count) {
+        long elapsed = System.nanoTime()-resetAt;
+        return elapsed <= 0 ? 0 : count*1e9/elapsed;
+    }
+}
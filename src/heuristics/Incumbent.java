@@ -0,0 +1,94 @@
+package heuristics;
+
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of the incumbent vector of a heuristic.
+ * A heuristic takes a snapshot only when its incumbent vector changes, so that
+ * reading the incumbent vector, or only its objective function value, costs
+ * no copy. A snapshot can be shared among threads without synchronization.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ * @see Heuristic#getBest() 
+ */
+public final class Incumbent {
+    private final double[] array;
+    private final double value;
+    private final int iterations;
+    private final long elapsed;
+
+    /**
+     * Creates a snapshot of a vector.
+     * @param vector the vector to copy
+     * @param iterations the number of iterations utilized to reach the vector
+     * @param elapsed the nanoseconds utilized to reach the vector
+     */
+    Incumbent(Vector vector, int iterations, long elapsed) {
+        array = vector.array == null ? null : Arrays.copyOfRange(vector.array, vector.offset, vector.offset+vector.length);
+        value = vector.getValue();
+        this.iterations = iterations;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * Returns the objective function value of the incumbent vector.
+     * @return the objective function value
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the value of the <i>index</i>-th cell of the incumbent vector.
+     * @param index the index of the cell
+     * @return the value of that cell
+     */
+    public double get(int index) {
+        return array[index];
+    }
+
+    /**
+     * Returns the length of the incumbent vector.
+     * @return the vector length
+     */
+    public int getLength() {
+        return array == null ? 0 : array.length;
+    }
+
+    /**
+     * Returns the number of iterations that the heuristic utilized to reach
+     * the incumbent vector.
+     * @return the number of iterations for the incumbent vector
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns the nanoseconds since the heuristic creation to the incumbent
+     * vector.
+     * @return the nanoseconds utilized to reach the incumbent vector
+     */
+    public long getElapsedNanos() {
+        return elapsed;
+    }
+
+    /**
+     * Returns a copy of the incumbent vector, with its objective function
+     * value.
+     * Each call to this method costs a copy of the incumbent vector.
+     * @return a new vector equal to the incumbent one
+     */
+    public Vector toVector() {
+        return new Vector(array == null ? null : array.clone()).setValue(value);
+    }
+
+    /**
+     * Returns a string representation of the incumbent vector.
+     * @return a string representation of the incumbent vector
+     * @see Vector#toString() 
+     */
+    @Override
+    public String toString() {
+        return new Vector(array).setValue(value).toString();
+    }
+}
@@ -0,0 +1,214 @@
+package heuristics;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A publisher of the improvements of an incumbent vector, e.g., of the
+ * incumbent vector shared by the heuristics of a batch.
+ * It follows the protocol of the reactive streams: a subscriber receives a
+ * subscription, by which it requests a number of snapshots, and then receives
+ * at most that number of snapshots. Since only the latest improvement matters,
+ * the improvements are conflated: a subscriber which is slower than the
+ * heuristics skips the intermediate snapshots and receives the best one when
+ * it requests more. The heuristics only signal the improvements, and each
+ * subscriber is served by the executor, one snapshot at a time, so that no
+ * subscriber can stall the heuristics, as long as the executor doesn't run
+ * the tasks of the heuristics.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ * @see Batch#getImprovements()
+ */
+public final class IncumbentPublisher {
+    private final Supplier<Incumbent> source;
+    private final Executor executor;
+    private final CopyOnWriteArrayList<Delivery> deliveries;
+
+    /**
+     * The receiver of the snapshots of an incumbent vector.
+     */
+    public interface Subscriber {
+
+        /**
+         * Invoked before any other method, with the subscription to utilize
+         * in order to request the snapshots.
+         * @param subscription the subscription
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Invoked with a requested snapshot, which is better than the
+         * previous one received.
+         * @param incumbent the snapshot of the incumbent vector
+         */
+        void onNext(Incumbent incumbent);
+
+        /**
+         * Invoked when no other snapshot will be sent.
+         */
+        void onComplete();
+
+        /**
+         * Invoked when no other snapshot will be sent because the source
+         * failed, e.g., because a heuristic threw an exception. By default,
+         * it does nothing.
+         * @param throwable the failure of the source
+         */
+        default void onError(Throwable throwable) {
+        }
+    }
+
+    /**
+     * The link between the publisher and a subscriber.
+     */
+    public interface Subscription {
+
+        /**
+         * Requests further snapshots.
+         * @param n the number of snapshots, which must be positive
+         */
+        void request(long n);
+
+        /**
+         * Stops the delivery of the snapshots.
+         */
+        void cancel();
+    }
+
+    /**
+     * Creates a publisher of the snapshots given by a source.
+     * @param source the supplier of the current snapshot, which may be null
+     * @param executor the executor which delivers the snapshots
+     */
+    public IncumbentPublisher(Supplier<Incumbent> source, Executor executor) {
+        this.source = source;
+        this.executor = executor;
+        deliveries = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Adds a subscriber, which will receive the current snapshot, if any, and
+     * the following improvements, as it requests them.
+     * @param subscriber the subscriber
+     */
+    public void subscribe(Subscriber subscriber) {
+        Delivery delivery = new Delivery(subscriber);
+        deliveries.add(delivery);
+        delivery.signal();
+    }
+
+    /**
+     * Signals the subscribers that the source changed.
+     * It never blocks: the snapshot is delivered by the executor.
+     */
+    public void signal() {
+        for(Delivery delivery: deliveries)
+            delivery.signal();
+    }
+
+    /**
+     * Completes the current subscribers, after they received the current
+     * snapshot, if they requested it. The later subscribers are not
+     * affected.
+     */
+    public void complete() {
+        for(Delivery delivery: deliveries)
+            delivery.complete(null);
+    }
+
+    /**
+     * Completes the current subscribers with a failure, after they received
+     * the current snapshot, if they requested it. The later subscribers are
+     * not affected.
+     * @param throwable the failure of the source
+     */
+    public void fail(Throwable throwable) {
+        for(Delivery delivery: deliveries)
+            delivery.complete(throwable);
+    }
+
+    /**
+     * The delivery of the snapshots to a subscriber. The deliveries of a
+     * subscriber are serialized by a counter of the pending signals: only the
+     * signal which finds no pending signals submits the drain to the executor,
+     * and the drain loops until no signal is pending.
+     */
+    private final class Delivery implements Subscription {
+        private final Subscriber subscriber;
+        private final AtomicLong demand;
+        private final AtomicInteger pending;
+        private volatile boolean cancelled, completed;
+        private volatile Throwable error;
+        private boolean subscribed;
+        private Incumbent last;
+
+        Delivery(Subscriber subscriber) {
+            this.subscriber = subscriber;
+            demand = new AtomicLong();
+            pending = new AtomicInteger();
+        }
+
+        @Override
+        public void request(long n) {
+            if(n <= 0)
+                throw new IllegalArgumentException("The number of requested snapshots must be positive");
+            demand.accumulateAndGet(n, (a, b) -> a+b < 0 ? Long.MAX_VALUE : a+b);
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            deliveries.remove(this);
+        }
+
+        void complete(Throwable error) {
+            this.error = error;
+            completed = true;
+            signal();
+        }
+
+        void signal() {
+            if(pending.getAndIncrement() == 0)
+                executor.execute(this::drain);
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                try {
+                    deliver();
+                } catch(RuntimeException e) {
+                    cancel();
+                }
+                missed = pending.addAndGet(-missed);
+            } while(missed != 0);
+        }
+
+        private void deliver() {
+            if(!subscribed) {
+                subscribed = true;
+                subscriber.onSubscribe(this);
+            }
+            if(cancelled)
+                return;
+            Incumbent best = source.get();
+            if(best != null && best != last && demand.get() > 0) {
+                last = best;
+                if(demand.get() != Long.MAX_VALUE)
+                    demand.decrementAndGet();
+                subscriber.onNext(best);
+            }
+            if(completed && !cancelled) {
+                cancel();
+                Throwable error = this.error;
+                if(error == null)
+                    subscriber.onComplete();
+                else
+                    subscriber.onError(error);
+            }
+        }
+    }
+}
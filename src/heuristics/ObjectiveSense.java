@@ -0,0 +1,28 @@
+package heuristics;
+
+/**
+ * Specifies if the objective function value must be minimized or maximized.
+ * Unlike a fitness function, which compares vectors, an objective sense
+ * compares the raw objective function values: the heuristics constructed with
+ * an objective sense and a primitive decoder never box a value nor dispatch a
+ * vector comparator.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ * @see FitnessFunction
+ */
+public enum ObjectiveSense implements ValueComparator {
+    MINIMIZE, MAXIMIZE;
+
+    @Override
+    public int compare(double a, double b) {
+        return this == MINIMIZE ? Double.compare(a, b) : Double.compare(b, a);
+    }
+
+    /**
+     * Returns the fitness function which compares vectors according to this
+     * objective sense.
+     * @return <i>MIN</i> if the values must be minimized, <i>MAX</i> otherwise
+     */
+    public FitnessFunction getFitnessFunction() {
+        return this == MINIMIZE ? FitnessFunction.MIN : FitnessFunction.MAX;
+    }
+}
@@ -0,0 +1,70 @@
+package heuristics;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The incumbent vector shared by many heuristics, e.g., by the heuristics of
+ * a batch.
+ * Whenever a heuristic improves its own incumbent vector, it offers the new
+ * snapshot to the shared incumbent, which is replaced by a compare-and-set
+ * only if the offered one is strictly better. Reading the shared incumbent is
+ * a single volatile read, so the heuristics can consult it at every iteration,
+ * e.g., to prune, to restart or to stop early on a bound.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ * @see Heuristic#getSharedBest() 
+ */
+public final class SharedIncumbent {
+    private final AtomicReference<Incumbent> best;
+    private final ValueComparator comparator;
+    private final Runnable listener;
+
+    /**
+     * Creates an empty shared incumbent.
+     * @param comparator the comparator of the objective function values
+     */
+    public SharedIncumbent(ValueComparator comparator) {
+        this(comparator, null);
+    }
+
+    /**
+     * Creates an empty shared incumbent which runs a listener whenever it is
+     * replaced. The listener runs on the thread of the improving heuristic,
+     * so it must not block; it should read the shared incumbent instead of
+     * relying on the order of its calls, which may be run concurrently.
+     * @param comparator the comparator of the objective function values
+     * @param listener the listener, or null
+     */
+    public SharedIncumbent(ValueComparator comparator, Runnable listener) {
+        this.comparator = comparator;
+        this.listener = listener;
+        best = new AtomicReference<>();
+    }
+
+    /**
+     * Replaces the shared incumbent with a snapshot, if the snapshot is
+     * strictly better. Among equal values, the first offered snapshot is
+     * kept.
+     * @param candidate the snapshot to offer
+     * @return true if the snapshot became the shared incumbent
+     */
+    public boolean offer(Incumbent candidate) {
+        while(true) {
+            Incumbent current = best.get();
+            if(current != null && comparator.compare(candidate.getValue(), current.getValue()) >= 0)
+                return false;
+            if(best.compareAndSet(current, candidate)) {
+                if(listener != null)
+                    listener.run();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the shared incumbent.
+     * @return the best offered snapshot, or null if none was offered
+     */
+    public Incumbent get() {
+        return best.get();
+    }
+}
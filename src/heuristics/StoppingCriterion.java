@@ -1,17 +1,28 @@
 package heuristics;
 
+import java.time.Duration;
 import java.util.Comparator;
 import java.util.function.Predicate;
 
 /**
- * A predicate for a generic heuristic
+ * A predicate for a generic heuristic.
+ * The same instance can be shared by the heuristics of a batch: as soon as
+ * one of them reaches the target objective function value, the predicate is
+ * met for all of them, so that the whole batch stops within one iteration.
+ * The target is checked against the incumbent vector which the heuristic
+ * shares with its batch, so that it doesn't outlive the batch: the heuristics
+ * of another batch meet it only when they reach the target on their own.
+ * The time limit is measured from the creation of the predicate or from the
+ * last <i>resetTime</i> call, which must precede each reuse of the predicate,
+ * e.g., by a new run.
  * @author Mirko Alicastro {@link https://mirkoalicastro.com}
  */
 public class StoppingCriterion implements Predicate<Heuristic> {
-    private long startedAt;
-    private final Comparator<? super Vector> comparator;
-    private final int maxIterationsWithNoIncrement, maxIterations, timeLimit;
-    private final Vector stoppingVector;
+    private volatile long startedAt;
+    private final ValueComparator comparator;
+    private final int maxIterationsWithNoIncrement, maxIterations;
+    private final long timeLimit;
+    private final double stoppingOFV;
 
     /**
      * Creates a heuristic predicate.
@@ -23,7 +34,7 @@ public class StoppingCriterion implements Predicate<Heuristic> {
      * maximum number of iterations, i.e., <i>maxIterationsWithNoIncrement</i>
      * </li>
      * <li>The heuristic is not working for more of a specified time in
-     * milliseconds, i.e., <i>timeLimit</i><sup>1</sup></li>
+     * seconds, i.e., <i>timeLimit</i><sup>1</sup></li>
      * <li>The heuristic has not already reached an incumbent vector whose
      * objective function value is better or equal to a specified value, i.e.,
      * <i>stoppingOFV</i></li>
@@ -36,20 +47,39 @@ public class StoppingCriterion implements Predicate<Heuristic> {
      * @param maxIterations the maximum number of iterations
      * @param maxIterationsWithNoIncrement the maximum number of iterations with
      * no increment
-     * @param timeLimit the maximum time in milliseconds
+     * @param timeLimit the maximum time in seconds
      * @param comparator the fitness function type
      * @param stoppingOFV the target objective function value
      * @see #test(heuristics.Heuristic) 
      * @see #resetTime() 
      */
     public StoppingCriterion(int maxIterations, int maxIterationsWithNoIncrement, int timeLimit, Comparator<? super Vector> comparator, double stoppingOFV) {
+        this(maxIterations, maxIterationsWithNoIncrement, Duration.ofSeconds(timeLimit), comparator, stoppingOFV);
+    }
+
+    /**
+     * Creates a heuristic predicate whose time limit is a duration, which is
+     * measured with nanosecond precision.
+     * @param maxIterations the maximum number of iterations
+     * @param maxIterationsWithNoIncrement the maximum number of iterations with
+     * no increment
+     * @param timeLimit the maximum time
+     * @param comparator the fitness function type
+     * @param stoppingOFV the target objective function value
+     * @see #StoppingCriterion(int, int, int, java.util.Comparator, double) 
+     */
+    public StoppingCriterion(int maxIterations, int maxIterationsWithNoIncrement, Duration timeLimit, Comparator<? super Vector> comparator, double stoppingOFV) {
         this.maxIterations = maxIterations;
         this.maxIterationsWithNoIncrement = maxIterationsWithNoIncrement;
-        this.timeLimit = timeLimit*1000;
-        this.comparator = comparator;
-        Vector vector = new Vector((double[])null);
-        vector.setValue(stoppingOFV);
-        this.stoppingVector = vector;
+        long nanos;
+        try {
+            nanos = timeLimit.toNanos();
+        } catch(ArithmeticException e) {
+            nanos = timeLimit.isNegative() ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        this.timeLimit = nanos;
+        this.comparator = ValueComparator.of(comparator);
+        this.stoppingOFV = stoppingOFV;
         resetTime();
     }
 
@@ -58,11 +88,13 @@ public class StoppingCriterion implements Predicate<Heuristic> {
      * @see #StoppingCriterion(int, int, int, heuristics.FitnessFunction, double) 
      */
     public final void resetTime() {
-        startedAt = System.currentTimeMillis();
+        startedAt = System.nanoTime();
     }
     
     /**
      * Checks if the heuristic must interrupt or can still work.
+     * It reads the objective function value of the incumbent vector shared
+     * by the heuristic, if any, without copying the vector.
      * @param heuristic the heuristic to check
      * @return true if the stopping criterion was met, false otherwise.
      * @see #StoppingCriterion(int, int, int, heuristics.FitnessFunction, double) 
@@ -72,7 +104,7 @@ public class StoppingCriterion implements Predicate<Heuristic> {
         boolean a = heuristic.getIterations() > maxIterations;
         boolean b = heuristic.getIterationsWithNoIncrement() > maxIterationsWithNoIncrement;
         boolean c = isTimedOut();
-        boolean d = comparator.compare(heuristic.getBestVector(), stoppingVector) <= 0;
+        boolean d = comparator.compare(heuristic.getSharedBest().getValue(), stoppingOFV) <= 0;
         return a || b || c || d;
     }
     
@@ -81,6 +113,6 @@ public class StoppingCriterion implements Predicate<Heuristic> {
      * @return true if the heuristic has timed out
      */
     public boolean isTimedOut() {
-        return System.currentTimeMillis()-startedAt > timeLimit;
+        return System.nanoTime()-startedAt > timeLimit;
     }
 }
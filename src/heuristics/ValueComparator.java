@@ -0,0 +1,48 @@
+package heuristics;
+
+import java.util.Comparator;
+
+/**
+ * A comparison between two objective function values such that a negative
+ * result means that the first value is better than the second one.
+ * It is the primitive counterpart of a vector comparator, which the
+ * heuristics utilize in their inner loops so that no vector has to be built
+ * in order to compare two values.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ * @see ObjectiveSense
+ */
+@FunctionalInterface
+public interface ValueComparator {
+
+    /**
+     * Compares two objective function values.
+     * @param a the first value
+     * @param b the second value
+     * @return a negative integer, zero, or a positive integer as the first
+     * value is better than, equal to, or worse than the second value
+     */
+    int compare(double a, double b);
+
+    /**
+     * Returns the value comparator which is equivalent to a vector comparator.
+     * The <i>MIN</i> and <i>MAX</i> fitness functions are mapped to the
+     * corresponding objective senses, while any other vector comparator is
+     * applied to two vectors which only hold the values. The two vectors are
+     * reused by all the comparisons of a thread, so that no comparison
+     * allocates: the vector comparator must not keep them.
+     * @param fitnessFunction the vector comparator
+     * @return the equivalent value comparator
+     * @see FitnessFunction
+     */
+    static ValueComparator of(Comparator<? super Vector> fitnessFunction) {
+        if(fitnessFunction == FitnessFunction.MIN)
+            return ObjectiveSense.MINIMIZE;
+        if(fitnessFunction == FitnessFunction.MAX)
+            return ObjectiveSense.MAXIMIZE;
+        ThreadLocal<Vector[]> probes = ThreadLocal.withInitial(() -> new Vector[] {new Vector((double[])null), new Vector((double[])null)});
+        return (a, b) -> {
+            Vector[] probe = probes.get();
+            return fitnessFunction.compare(probe[0].setValue(a), probe[1].setValue(b));
+        };
+    }
+}
@@ -5,11 +5,14 @@ import java.util.Arrays;
 /**
  * A vector representation of a fixed length of all double values and with an
  * additional double value.
+ * A vector may also be a view of a range of a larger double array, so that
+ * many vectors can share a single contiguous array.
  * @author Mirko Alicastro {@link https://mirkoalicastro.com}
  */
 public class Vector {
     protected double value;
     protected double[] array;
+    protected int offset, length;
     
     /**
      * Creates a vector that is a copy of another vector.
@@ -17,9 +20,9 @@ public class Vector {
      * @param other the vector to copy
      */
     public Vector(Vector other) {
-        this(other.array.length);
-        this.value = other.value;
-        System.arraycopy(other.array, 0, array, 0, array.length);
+        this(other.length);
+        this.value = other.getValue();
+        System.arraycopy(other.array, other.offset, array, 0, length);
     }
 
     /**
@@ -31,6 +34,24 @@ public class Vector {
      */
     public Vector(double[] array) {
         this.array = array;
+        this.length = array == null ? 0 : array.length;
+    }
+
+    /**
+     * Creates a vector that is a view of a range of the given double array
+     * and with a value of 0.
+     * No allocation is made so the changes to the vector are changes to the
+     * double array, and vice versa.
+     * @param array the double array this vector must use
+     * @param offset the index of the first cell of the range
+     * @param length the range length
+     */
+    public Vector(double[] array, int offset, int length) {
+        if(offset < 0 || length < 0 || offset > array.length-length)
+            throw new IllegalArgumentException("The range must be within the array");
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
     }
     
     /**
@@ -39,7 +60,7 @@ public class Vector {
      * @param length the array length
      */
     public Vector(int length) {
-        this.array = new double[length];
+        this(new double[length]);
     }
     
     /**
@@ -49,7 +70,7 @@ public class Vector {
      * @return the <i>this</i> instance
      */
     public Vector set(int index, double value) {
-        array[index] = value;
+        array[cell(index)] = value;
         return this;
     }
 
@@ -59,7 +80,7 @@ public class Vector {
      * @return the value of that cell
      */
     public double get(int index) {
-        return array[index];
+        return array[cell(index)];
     }
     
     /**
@@ -67,7 +88,19 @@ public class Vector {
      * @return the array length
      */
     public int getLength() {
-        return array.length;
+        return length;
+    }
+
+    /**
+     * Copies the array and the value of another vector into this vector.
+     * @param other the vector to copy
+     * @return the <i>this</i> instance
+     */
+    public Vector copyFrom(Vector other) {
+        if(other.length != length)
+            throw new IllegalArgumentException("The vectors must have the same length");
+        System.arraycopy(other.array, other.offset, array, offset, length);
+        return setValue(other.getValue());
     }
     
     /**
@@ -101,7 +134,14 @@ public class Vector {
         if(!(other instanceof Vector))
             return false;
         Vector vector = (Vector) other;
-        return Arrays.equals(vector.array, array);
+        if(vector.array == null || array == null)
+            return vector.array == array;
+        if(vector.length != length)
+            return false;
+        for(int i=0; i<length; i++)
+            if(Double.doubleToLongBits(vector.array[vector.offset+i]) != Double.doubleToLongBits(array[offset+i]))
+                return false;
+        return true;
     }
 
     /**
@@ -111,7 +151,30 @@ public class Vector {
      */
     @Override
     public int hashCode() {
-        return Arrays.hashCode(array);
+        if(array == null)
+            return 0;
+        int hash = 1;
+        for(int i=offset; i<offset+length; i++) {
+            long bits = Double.doubleToLongBits(array[i]);
+            hash = 31*hash+(int)(bits^(bits >>> 32));
+        }
+        return hash;
+    }
+
+    /**
+     * Returns a 64-bit hash code based on the contents of the array.
+     * Two vectors which are equal have the same 64-bit hash code. The vector
+     * value is not taken into account.
+     * @return a content-based 64-bit hash code
+     * @see #equals(java.lang.Object) 
+     */
+    public long longHashCode() {
+        long hash = length;
+        for(int i=offset; i<offset+length; i++)
+            hash = (hash^Double.doubleToLongBits(array[i]))*0x9E3779B97F4A7C15L;
+        hash = (hash^(hash >>> 33))*0xFF51AFD7ED558CCDL;
+        hash = (hash^(hash >>> 33))*0xC4CEB9FE1A85EC53L;
+        return hash^(hash >>> 33);
     }
     
     /**
@@ -133,8 +196,18 @@ public class Vector {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        sb.append("{value:").append(value).append(", array:")
-                .append(Arrays.toString(array)).append("}");
+        sb.append("{value:").append(getValue()).append(", array:")
+                .append(Arrays.toString(array == null ? null : Arrays.copyOfRange(array, offset, offset+length))).append("}");
         return sb.toString();
     }
+
+    /**
+     * Returns the index of the array cell which corresponds to the
+     * <i>index</i>-th cell of this vector.
+     */
+    private int cell(int index) {
+        if((offset != 0 || length != array.length) && (index < 0 || index >= length))
+            throw new ArrayIndexOutOfBoundsException(index);
+        return offset+index;
+    }
 }
@@ -0,0 +1,23 @@
+package heuristics.brkga.client;
+
+import heuristics.Vector;
+
+/**
+ * A crossing over which writes the offspring of an elite and a non-elite
+ * individual into a target vector, instead of allocating it.
+ * The target is distinct from both the parents and its contents are the
+ * chromosome of a discarded individual, which must be entirely overwritten.
+ * The parents must not be modified.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ */
+@FunctionalInterface
+public interface CrossingOver {
+
+    /**
+     * Writes the offspring of two individuals into the target vector.
+     * @param elite the elite parent
+     * @param nonElite the non-elite parent
+     * @param target the vector to fill with the offspring keys
+     */
+    void apply(Vector elite, Vector nonElite, Vector target);
+}
@@ -0,0 +1,237 @@
+package heuristics.brkga.client;
+
+import heuristics.Vector;
+import java.util.Arrays;
+
+/**
+ * Computes the permutation which sorts the keys of a chromosome, i.e., the
+ * first step of most decoders of the biased random-key genetic algorithm,
+ * without boxing the indexes and without comparators.
+ * The keys are mapped to 64-bit patterns whose unsigned order is the order of
+ * <i>Double.compare</i>, and the patterns are sorted by a least significant
+ * digit radix sort of 8-bit digits, which skips the digits shared by all the
+ * keys, e.g., the sign and most of the exponent of keys within [0, 1). The
+ * sort is stable, so that equal keys are ordered by their indexes, as the sort
+ * of boxed indexes by a comparator of their keys.
+ * A partial sort computes only the indexes of the <i>k</i> smallest keys: it
+ * selects them by the most significant digits first, then it sorts only them.
+ * The buffers of the sort belong to the calling thread and grow with the
+ * longest chromosome which it has sorted, so that nothing is allocated once
+ * they are large enough. The permutation is written into an array given by
+ * the caller or, if none is given, into an array of the calling thread which
+ * is overwritten by its next sort.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ */
+public final class KeySort {
+    private static final int DIGITS = 8;
+    private static final int RADIX = 256;
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private KeySort() {
+    }
+
+    /**
+     * Returns the permutation which sorts the keys of a vector in ascending
+     * order, within an array of the calling thread.
+     * The array may be longer than the vector, and it is overwritten by the
+     * next sort of the calling thread into its own array.
+     * @param keys the vector of the keys
+     * @return the array whose first <i>keys.getLength()</i> cells are the
+     * indexes of the keys in ascending order of key
+     */
+    public static int[] argsort(Vector keys) {
+        return argsort(keys, keys.getLength());
+    }
+
+    /**
+     * Returns the indexes of the <i>k</i> smallest keys of a vector in
+     * ascending order of key, within an array of the calling thread.
+     * The array may be longer than <i>k</i>, and it is overwritten by the
+     * next sort of the calling thread into its own array.
+     * @param keys the vector of the keys
+     * @param k the number of indexes to compute
+     * @return the array whose first <i>k</i> cells are the indexes of the
+     * <i>k</i> smallest keys in ascending order of key
+     */
+    public static int[] argsort(Vector keys, int k) {
+        Buffers buffers = BUFFERS.get();
+        buffers.ensure(keys.getLength());
+        sort(keys, buffers.permutation, k, buffers);
+        return buffers.permutation;
+    }
+
+    /**
+     * Writes the permutation which sorts the keys of a vector in ascending
+     * order into an array.
+     * @param keys the vector of the keys
+     * @param permutation the array whose first <i>keys.getLength()</i> cells
+     * become the indexes of the keys in ascending order of key
+     * @return the <i>permutation</i> array
+     */
+    public static int[] argsort(Vector keys, int[] permutation) {
+        return argsort(keys, permutation, keys.getLength());
+    }
+
+    /**
+     * Writes the indexes of the <i>k</i> smallest keys of a vector in
+     * ascending order of key into an array.
+     * @param keys the vector of the keys
+     * @param permutation the array whose first <i>k</i> cells become the
+     * indexes of the <i>k</i> smallest keys in ascending order of key
+     * @param k the number of indexes to compute
+     * @return the <i>permutation</i> array
+     */
+    public static int[] argsort(Vector keys, int[] permutation, int k) {
+        if(permutation.length < k)
+            throw new IllegalArgumentException("The permutation array must have at least k cells");
+        Buffers buffers = BUFFERS.get();
+        buffers.ensure(keys.getLength());
+        sort(keys, permutation, k, buffers);
+        return permutation;
+    }
+
+    private static void sort(Vector keys, int[] permutation, int k, Buffers buffers) {
+        int n = keys.getLength();
+        if(k < 0 || k > n)
+            throw new IllegalArgumentException("The number of indexes must be within [0, length]");
+        if(k == 0)
+            return;
+        long[] bits = buffers.bits;
+        int[] indexes = buffers.indexes;
+        for(int i=0; i<n; i++) {
+            bits[i] = sortable(keys.get(i));
+            indexes[i] = i;
+        }
+        if(n <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(bits, indexes, n);
+            System.arraycopy(indexes, 0, permutation, 0, k);
+        } else if(k == n) {
+            radixSort(bits, indexes, buffers.buffer, permutation, n, permutation, buffers.counts);
+        } else {
+            select(bits, indexes, n, k, buffers.buffer, permutation, buffers.counts);
+            radixSort(buffers.buffer, permutation, bits, indexes, k, permutation, buffers.counts);
+        }
+    }
+
+    /**
+     * Maps a key to a 64-bit pattern whose unsigned order is the order of
+     * <i>Double.compare</i>: the sign bit of the positive keys is set, and all
+     * the bits of the negative keys are flipped.
+     */
+    private static long sortable(double key) {
+        long bits = Double.doubleToLongBits(key);
+        return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+    }
+
+    private static int digit(long bits, int digit) {
+        return (int)(bits >>> (digit << 3)) & (RADIX-1);
+    }
+
+    private static void insertionSort(long[] bits, int[] indexes, int n) {
+        for(int i=1; i<n; i++) {
+            long key = bits[i];
+            int index = indexes[i];
+            int j = i-1;
+            for(; j >= 0 && Long.compareUnsigned(bits[j], key) > 0; j--) {
+                bits[j+1] = bits[j];
+                indexes[j+1] = indexes[j];
+            }
+            bits[j+1] = key;
+            indexes[j+1] = index;
+        }
+    }
+
+    /**
+     * Sorts the first <i>n</i> patterns and their indexes, alternating between
+     * the two pairs of arrays, and writes the sorted indexes into
+     * <i>target</i>, which is one of the two index arrays.
+     */
+    private static void radixSort(long[] bits, int[] indexes, long[] otherBits, int[] otherIndexes, int n, int[] target, int[] counts) {
+        Arrays.fill(counts, 0);
+        for(int i=0; i<n; i++) {
+            long b = bits[i];
+            for(int d=0; d<DIGITS; d++)
+                counts[(d << 8)+digit(b, d)]++;
+        }
+        for(int d=0; d<DIGITS; d++) {
+            int base = d << 8;
+            if(counts[base+digit(bits[0], d)] == n)
+                continue;
+            for(int r=0, sum=0; r<RADIX; r++) {
+                int count = counts[base+r];
+                counts[base+r] = sum;
+                sum += count;
+            }
+            for(int i=0; i<n; i++) {
+                long b = bits[i];
+                int position = counts[base+digit(b, d)]++;
+                otherBits[position] = b;
+                otherIndexes[position] = indexes[i];
+            }
+            long[] swapBits = bits;
+            bits = otherBits;
+            otherBits = swapBits;
+            int[] swapIndexes = indexes;
+            indexes = otherIndexes;
+            otherIndexes = swapIndexes;
+        }
+        if(indexes != target)
+            System.arraycopy(indexes, 0, target, 0, n);
+    }
+
+    /**
+     * Moves the <i>k</i> smallest patterns among the first <i>n</i> ones, and
+     * their indexes, into the first cells of the two selected arrays, in no
+     * particular order but for the equal patterns, which keep the order of
+     * their indexes.
+     * From the most significant digit, the candidates whose digit is lower
+     * than the digit of the <i>k</i>-th smallest candidate are selected,
+     * those whose digit is greater are discarded, and the others remain
+     * candidates, compacted in place.
+     */
+    private static void select(long[] bits, int[] indexes, int n, int k, long[] selectedBits, int[] selectedIndexes, int[] counts) {
+        int selected = 0, candidates = n, needed = k;
+        for(int d=DIGITS-1; d >= 0 && needed < candidates; d--) {
+            Arrays.fill(counts, 0, RADIX, 0);
+            for(int i=0; i<candidates; i++)
+                counts[digit(bits[i], d)]++;
+            int boundary = 0, below = 0;
+            while(below+counts[boundary] < needed)
+                below += counts[boundary++];
+            if(counts[boundary] == candidates)
+                continue;
+            int remaining = 0;
+            for(int i=0; i<candidates; i++) {
+                long b = bits[i];
+                int r = digit(b, d);
+                if(r < boundary) {
+                    selectedBits[selected] = b;
+                    selectedIndexes[selected++] = indexes[i];
+                } else if(r == boundary) {
+                    bits[remaining] = b;
+                    indexes[remaining++] = indexes[i];
+                }
+            }
+            needed -= below;
+            candidates = remaining;
+        }
+        System.arraycopy(bits, 0, selectedBits, selected, needed);
+        System.arraycopy(indexes, 0, selectedIndexes, selected, needed);
+    }
+
+    private static final class Buffers {
+        private long[] bits = new long[0], buffer = new long[0];
+        private int[] indexes = new int[0], permutation = new int[0];
+        private final int[] counts = new int[DIGITS*RADIX];
+
+        private void ensure(int length) {
+            if(bits.length < length) {
+                bits = new long[length];
+                buffer = new long[length];
+                indexes = new int[length];
+                permutation = new int[length];
+            }
+        }
+    }
+}
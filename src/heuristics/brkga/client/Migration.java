@@ -0,0 +1,40 @@
+package heuristics.brkga.client;
+
+/**
+ * 
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ */
+public class Migration {
+
+    /**
+     * Number of generations between two migrations.
+     */
+    public final int interval;
+
+    /**
+     * Number of elite individuals sent by a population to each neighbour.
+     */
+    public final int migrants;
+
+    /**
+     * Topology of the islands.
+     */
+    public final Topology topology;
+
+    /**
+     * Constructs a Migration object for a genetic algorithm whose populations
+     * are islands.
+     * @param interval number of generations between two migrations
+     * @param migrants number of elite individuals sent to each neighbour
+     * @param topology topology of the islands
+     */
+    public Migration(int interval, int migrants, Topology topology) {
+        if(interval < 1)
+            throw new IllegalArgumentException("The migration interval must be greater than 0");
+        if(migrants < 0)
+            throw new IllegalArgumentException("The number of migrants can't be negative");
+        this.interval = interval;
+        this.migrants = migrants;
+        this.topology = topology;
+    }
+}
@@ -0,0 +1,63 @@
+package heuristics.brkga.client;
+
+import heuristics.Vector;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * A generator of uniform random keys in [0, 1), which allocates nothing.
+ * Each key is a function of a seed and of its index, i.e., the output of the
+ * SplitMix64 generator at that index, so that the keys of a chromosome don't
+ * depend on each other: unlike a loop which draws each key from a shared
+ * random number generator, the loop which fills a chromosome has no
+ * dependency between its iterations, so that the compiler can unroll and
+ * vectorize it.
+ * When it is given to a biased random-key genetic algorithm, the chromosomes
+ * are filled within the population storage and the seeds are drawn from the
+ * random number generator of the algorithm, so that a run is reproducible
+ * from its seed. Otherwise, the seed of each vector is drawn from the
+ * thread-local random number generator.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ */
+public final class RandomKeyGenerator implements Consumer<Vector> {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Fills a vector with random keys.
+     * @param vector the vector to fill
+     */
+    @Override
+    public void accept(Vector vector) {
+        long seed = ThreadLocalRandom.current().nextLong();
+        for(int i=0; i<vector.getLength(); i++)
+            vector.set(i, toKey(bits(seed, i)));
+    }
+
+    /**
+     * Fills a range of an array with the random keys given by a seed.
+     * @param keys the array
+     * @param offset the index of the first cell of the range
+     * @param length the range length
+     * @param seed the seed
+     */
+    public static void generate(double[] keys, int offset, int length, long seed) {
+        for(int i=0; i<length; i++)
+            keys[offset+i] = toKey(bits(seed, i));
+    }
+
+    /**
+     * Returns the 64 random bits given by a seed at an index, i.e., the
+     * <i>(index+1)</i>-th output of the SplitMix64 generator seeded by
+     * <i>seed</i>.
+     */
+    static long bits(long seed, int index) {
+        long z = seed+(index+1)*GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30))*0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27))*0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static double toKey(long bits) {
+        return (bits >>> 11)*0x1.0p-53;
+    }
+}
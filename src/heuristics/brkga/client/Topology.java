@@ -0,0 +1,44 @@
+package heuristics.brkga.client;
+
+/**
+ * Specifies which populations receive the migrants of a population, when the
+ * populations of a genetic algorithm are islands.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ * @see Migration
+ */
+public enum Topology {
+    /**
+     * Each island sends its migrants to the next island, the last island
+     * sends its migrants to the first one.
+     */
+    RING {
+        @Override
+        public int[] neighbours(int island, int islands) {
+            if(islands < 2)
+                return new int[0];
+            return new int[] {(island+1)%islands};
+        }
+    },
+    /**
+     * Each island sends its migrants to all the other islands.
+     */
+    FULLY_CONNECTED {
+        @Override
+        public int[] neighbours(int island, int islands) {
+            int[] neighbours = new int[islands-1];
+            for(int i=0, j=0; i<islands; i++)
+                if(i != island)
+                    neighbours[j++] = i;
+            return neighbours;
+        }
+    };
+
+    /**
+     * Returns the indexes of the islands which receive the migrants of the
+     * specified island.
+     * @param island the index of the island
+     * @param islands the number of islands
+     * @return the indexes of the neighbours of the island
+     */
+    public abstract int[] neighbours(int island, int islands);
+}
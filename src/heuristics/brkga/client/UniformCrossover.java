@@ -0,0 +1,69 @@
+package heuristics.brkga.client;
+
+import heuristics.Vector;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The parameterized uniform crossover of the biased random-key genetic
+ * algorithm, which allocates nothing: each key of the offspring is inherited
+ * from the elite parent with probability <i>rho</i>, and from the non-elite
+ * parent otherwise.
+ * The random bits which choose the parent of each key are a function of a
+ * seed and of the key index, as the keys of {@link RandomKeyGenerator}, and
+ * the choice is a comparison of integers followed by a select, with no branch
+ * on the random bits: the loop has no dependency between its iterations, so
+ * that the compiler can unroll and vectorize it.
+ * When it is given to a biased random-key genetic algorithm, the offspring
+ * is written within the population storage and the seeds are drawn from the
+ * random number generator of the algorithm, so that a run is reproducible
+ * from its seed. Otherwise, the seed of each offspring is drawn from the
+ * thread-local random number generator.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ */
+public final class UniformCrossover implements CrossingOver {
+    private final double rho;
+    private final long threshold;
+
+    /**
+     * Constructs a parameterized uniform crossover.
+     * @param rho the probability to inherit a key from the elite parent
+     */
+    public UniformCrossover(double rho) {
+        if(!(rho >= 0 && rho <= 1))
+            throw new IllegalArgumentException("The inheritance probability must be within [0, 1]");
+        this.rho = rho;
+        threshold = (long)(rho*0x1.0p53);
+    }
+
+    /**
+     * Returns the probability to inherit a key from the elite parent.
+     * @return the inheritance probability
+     */
+    public double getRho() {
+        return rho;
+    }
+
+    @Override
+    public void apply(Vector elite, Vector nonElite, Vector target) {
+        long seed = ThreadLocalRandom.current().nextLong();
+        for(int i=0; i<target.getLength(); i++)
+            target.set(i, (RandomKeyGenerator.bits(seed, i) >>> 11) < threshold ? elite.get(i) : nonElite.get(i));
+    }
+
+    /**
+     * Writes the offspring of two chromosomes, which are ranges of arrays,
+     * into a range of an array, choosing the parents of the keys by a seed.
+     * @param elite the array of the elite parent
+     * @param eliteOffset the index of the first key of the elite parent
+     * @param nonElite the array of the non-elite parent
+     * @param nonEliteOffset the index of the first key of the non-elite parent
+     * @param target the array of the offspring
+     * @param targetOffset the index of the first key of the offspring
+     * @param length the chromosome length
+     * @param seed the seed
+     */
+    public void apply(double[] elite, int eliteOffset, double[] nonElite, int nonEliteOffset, double[] target, int targetOffset, int length, long seed) {
+        for(int i=0; i<length; i++)
+            target[targetOffset+i] = (RandomKeyGenerator.bits(seed, i) >>> 11) < threshold ? elite[eliteOffset+i] : nonElite[nonEliteOffset+i];
+    }
+}
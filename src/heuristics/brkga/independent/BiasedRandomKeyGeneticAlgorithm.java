@@ -1,19 +1,24 @@
 package heuristics.brkga.independent;
 
+import heuristics.Checkpoint;
 import heuristics.Heuristic;
+import heuristics.HeuristicEvents;
+import heuristics.ValueComparator;
 import heuristics.Vector;
 import heuristics.brkga.client.Configuration;
+import heuristics.brkga.client.CrossingOver;
+import heuristics.brkga.client.RandomKeyGenerator;
+import heuristics.brkga.client.UniformCrossover;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import java.util.Comparator;
 import java.util.function.Predicate;
 import java.util.Random;
 import java.util.function.BiFunction;
-import java.util.function.Function;
 import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
 
 /**
  *
@@ -23,42 +28,77 @@ public class BiasedRandomKeyGeneticAlgorithm extends Heuristic {
     private final Consumer<? super Vector> individualGenerator;
     private final Population population;
     private final List<Integer> notElites;
-    private final Function<? super Vector, Double> decoder;
+    private final ToDoubleFunction<? super Vector> decoder;
     private final Predicate<Heuristic> stoppingCriterion;
-    private final BiFunction<? super Vector, ? super Vector, Vector> crossingOver;
+    private final CrossingOver crossingOver;
+    private final UniformCrossover uniformCrossover;
+    private final RandomKeyGenerator keyGenerator;
         
-    private final Random rand;
-    private final Comparator<? super Vector> fitnessFunction;
+    private Random rand;
+    private final ValueComparator valueComparator;
     private final int eliteSize;
     private final int mutantsSize;
+    private final Island island;
     
-    BiasedRandomKeyGeneticAlgorithm(Comparator<? super Vector> fitnessFunction, Configuration config, BiFunction<? super Vector, ? super Vector, Vector> crossingOver, Consumer<? super Vector> individualGenerator, Function<? super Vector, Double> decoder, Predicate<Heuristic> stoppingCriterion, Random random) {
+    BiasedRandomKeyGeneticAlgorithm(ValueComparator valueComparator, Configuration config, BiFunction<? super Vector, ? super Vector, Vector> crossingOver, Consumer<? super Vector> individualGenerator, ToDoubleFunction<? super Vector> decoder, Predicate<Heuristic> stoppingCriterion, Random random) {
+        this(valueComparator, config, crossingOver, individualGenerator, decoder, stoppingCriterion, null, random);
+    }
+
+    BiasedRandomKeyGeneticAlgorithm(ValueComparator valueComparator, Configuration config, BiFunction<? super Vector, ? super Vector, Vector> crossingOver, Consumer<? super Vector> individualGenerator, ToDoubleFunction<? super Vector> decoder, Predicate<Heuristic> stoppingCriterion, Island island, Random random) {
+        this(valueComparator, config, (elite, nonElite, target) -> target.copyFrom(crossingOver.apply(elite, nonElite)), individualGenerator, decoder, stoppingCriterion, island, random);
+    }
+
+    /**
+     * Constructs a BiasedRandomKeyGeneticAlgorithm object whose crossing over
+     * writes each offspring into the chromosome of a discarded individual, so
+     * that no generation allocates chromosomes.
+     * A {@link UniformCrossover} and a {@link RandomKeyGenerator} work within
+     * the population storage, with seeds drawn from <i>random</i>.
+     */
+    BiasedRandomKeyGeneticAlgorithm(ValueComparator valueComparator, Configuration config, CrossingOver crossingOver, Consumer<? super Vector> individualGenerator, ToDoubleFunction<? super Vector> decoder, Predicate<Heuristic> stoppingCriterion, Island island, Random random) {
+        this.island = island;
         this.stoppingCriterion = stoppingCriterion;
-        this.fitnessFunction = fitnessFunction;
+        this.valueComparator = valueComparator;
         this.crossingOver = crossingOver;
         this.individualGenerator = individualGenerator;
-        this.decoder = decoder;
-        population = new Population(config.populationSize, config.chromosomeLength);
-        population.applyToAll(individualGenerator, true);
-        evaluateAndThenSortPopulation();
-        eliteSize = (int)(config.eliteFraction*config.populationSize);
-        mutantsSize = (int)(config.mutantFraction*config.populationSize);
-        notElites = IntStream.range(eliteSize, config.populationSize).boxed().collect(Collectors.toCollection(ArrayList::new));
+        uniformCrossover = crossingOver instanceof UniformCrossover ? (UniformCrossover) crossingOver : null;
+        keyGenerator = individualGenerator instanceof RandomKeyGenerator ? (RandomKeyGenerator) individualGenerator : null;
+        this.decoder = super.getMetrics().instrument(decoder);
         if(random == null) {
             random = new Random();
             random.setSeed(System.nanoTime());
         }
         this.rand = random;
-        super.updateBest(new Vector(population.get(0)));
+        eliteSize = (int)(config.eliteFraction*config.populationSize);
+        mutantsSize = (int)(config.mutantFraction*config.populationSize);
+        population = new Population(config.populationSize, config.chromosomeLength);
+        if(keyGenerator != null)
+            population.generateAll(rand, true);
+        else
+            population.applyToAll(individualGenerator, true);
+        evaluateAndThenRankPopulation();
+        notElites = IntStream.range(eliteSize, config.populationSize).boxed().collect(Collectors.toCollection(ArrayList::new));
+        super.updateBest(population.get(0));
     }
     
-    private void evaluateAndThenSortPopulation() {
-        population.applyToAll(individual -> individual.setValue(decoder.apply(individual)), true);
-        population.sort(fitnessFunction);
+    /**
+     * Evaluates the changed individuals and then ranks the population, so
+     * that the elite individuals are sorted in the first positions.
+     */
+    private void evaluateAndThenRankPopulation() {
+        HeuristicEvents.Evaluation evaluation = HeuristicEvents.Evaluation.begin();
+        population.evaluate(decoder, true);
+        evaluation.end(this, "population");
+        HeuristicEvents.Ranking ranking = HeuristicEvents.Ranking.begin();
+        population.rank(valueComparator, eliteSize);
+        ranking.end(this);
     }
     
     /**
      * Evolves one epoch and updates the best individual of the population.
+     * If the population is an island, the received migrants replace the worst
+     * individuals and, every migration interval, the best individuals are
+     * sent to the neighbours.
      * Returns true if the stopping criterion has not been met.
      * @return true if the epoche was correctly processed, false otherwise.
      */
@@ -68,19 +108,60 @@ public class BiasedRandomKeyGeneticAlgorithm extends Heuristic {
             return false;
         super.increaseIterations();
         Collections.shuffle(notElites, rand);
-        for(int j=0; j<mutantsSize; j++)
-            individualGenerator.accept(population.get(notElites.get(j)));
+        for(int j=0; j<mutantsSize; j++) {
+            if(keyGenerator != null)
+                population.generate(notElites.get(j), rand.nextLong());
+            else
+                population.generate(notElites.get(j), individualGenerator);
+        }
         for(int j=mutantsSize; j<notElites.size(); j++) {
             int notEliteIndex = notElites.get(j);
-            Vector notElite = population.get(notEliteIndex);
             int eliteIndex = rand.nextInt(eliteSize);
-            Vector elite = population.get(eliteIndex);
-            population.set(notEliteIndex, crossingOver.apply(elite, notElite));
+            if(uniformCrossover != null)
+                population.cross(eliteIndex, notEliteIndex, uniformCrossover, rand.nextLong());
+            else
+                crossingOver.apply(population.get(eliteIndex), population.get(notEliteIndex), population.getSpare());
+            population.replaceWithSpare(notEliteIndex);
+        }
+        evaluateAndThenRankPopulation();
+        if(island != null) {
+            if(island.immigrate(population, eliteSize) > 0)
+                population.rank(valueComparator, eliteSize);
+            island.emigrate(population, super.getIterations(), eliteSize);
         }
-        evaluateAndThenSortPopulation();
         Vector tmpVector = population.get(0);
-        if(fitnessFunction.compare(tmpVector, super.getBestVector()) < 0)
-            super.updateBest(new Vector(tmpVector));
+        if(valueComparator.compare(tmpVector.getValue(), super.getBestValue()) < 0)
+            super.updateBest(tmpVector);
         return true;
     }
+
+    /**
+     * Returns the objective function value of the best individual of the
+     * current population.
+     * @return the objective function value of the best individual
+     */
+    @Override
+    public double getCurrentValue() {
+        return population.get(0).getValue();
+    }
+
+    @Override
+    protected void writeState(Checkpoint.Writer out) {
+        population.checkpoint(out);
+        for(int notElite: notElites)
+            out.putInt(notElite);
+        out.putRandom(rand);
+        if(island != null)
+            island.checkpoint(out);
+    }
+
+    @Override
+    protected void readState(Checkpoint.Reader in) {
+        population.restore(in);
+        for(int i=0; i<notElites.size(); i++)
+            notElites.set(i, in.getInt());
+        rand = in.getRandom();
+        if(island != null)
+            island.restore(in);
+    }
 }
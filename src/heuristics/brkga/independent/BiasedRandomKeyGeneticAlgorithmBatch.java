@@ -2,14 +2,21 @@ package heuristics.brkga.independent;
 
 import heuristics.Batch;
 import heuristics.Heuristic;
+import heuristics.ObjectiveSense;
+import heuristics.ValueComparator;
 import heuristics.Vector;
 import heuristics.brkga.client.Configuration;
+import heuristics.brkga.client.CrossingOver;
+import heuristics.brkga.client.Migration;
+import heuristics.brkga.client.RandomKeyGenerator;
+import heuristics.brkga.client.UniformCrossover;
 import java.util.Comparator;
 import java.util.function.Predicate;
 import java.util.Random;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
 
 /**
  *
@@ -37,13 +44,215 @@ public class BiasedRandomKeyGeneticAlgorithmBatch extends Batch {
      * @param seed the seed to utilize for random calls.
      */
     public BiasedRandomKeyGeneticAlgorithmBatch(Comparator<? super Vector> fitnessFunction, Configuration config, BiFunction<? super Vector, ? super Vector, Vector> heredityRule, Consumer<? super Vector> individualGenerator, Function<? super Vector, Double> decoder, Predicate<Heuristic> stoppingCriterion, long seed) {
+        this(config, null, seed, (island, random) -> new BiasedRandomKeyGeneticAlgorithm(ValueComparator.of(fitnessFunction), config, heredityRule, individualGenerator, decoder::apply, stoppingCriterion, random), fitnessFunction);
+    }
+
+    /**
+     * Constructs a multi-thread genetic algorithm composed by the specified
+     * number of populations, which are islands that periodically exchange
+     * their elite individuals.
+     * Every <tt>migration.interval</tt> generations, each population sends
+     * copies of its best <tt>migration.migrants</tt> individuals to its
+     * neighbours, according to <tt>migration.topology</tt>. The received
+     * migrants replace the worst non-elite individuals of a population at its
+     * next generation. The migrants are exchanged through lock-free queues,
+     * so that the populations never wait for each other.
+     * The CrossingOver object, DNAGenerator object and Decoder object are
+     * shared by all the threads. It is your own responsibility to implement
+     * synchronized methods or methods which don't arise race conditions.
+     * This multi-threading manager creates the specified number of heuristic
+     * objects using a different seed for each of it, i.e., using <tt>seed+i</tt>
+     * where <tt>seed</tt> is given and <tt>i</tt> is the index of the heuristic
+     * in the internal sorting.
+     * @param fitnessFunction the fitness function type
+     * @param config the Config object
+     * @param migration the Migration object
+     * @param heredityRule the CrossingOver used by all populations
+     * @param individualGenerator the SequenceGenerator used by all populations
+     * @param decoder the Decoder used by all populations
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     * @param seed the seed to utilize for random calls.
+     */
+    public BiasedRandomKeyGeneticAlgorithmBatch(Comparator<? super Vector> fitnessFunction, Configuration config, Migration migration, BiFunction<? super Vector, ? super Vector, Vector> heredityRule, Consumer<? super Vector> individualGenerator, Function<? super Vector, Double> decoder, Predicate<Heuristic> stoppingCriterion, long seed) {
+        this(config, migration, seed, (island, random) -> new BiasedRandomKeyGeneticAlgorithm(ValueComparator.of(fitnessFunction), config, heredityRule, individualGenerator, decoder::apply, stoppingCriterion, island, random), fitnessFunction);
+    }
+
+    /**
+     * Constructs a multi-thread genetic algorithm composed by the specified
+     * number of independent populations, which evaluate the individuals by
+     * means of a primitive decoder and compare the objective function values
+     * according to an objective sense, so that no value is boxed.
+     * The CrossingOver object, DNAGenerator object and Decoder object are
+     * shared by all the threads. It is your own responsibility to implement
+     * synchronized methods or methods which don't arise race conditions.
+     * This multi-threading manager creates the specified number of heuristic
+     * objects using a different seed for each of it, i.e., using <tt>seed+i</tt>
+     * where <tt>seed</tt> is given and <tt>i</tt> is the index of the heuristic
+     * in the internal sorting.
+     * @param sense the objective sense
+     * @param config the Config object
+     * @param heredityRule the CrossingOver used by all populations
+     * @param individualGenerator the SequenceGenerator used by all populations
+     * @param decoder the Decoder used by all populations
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     * @param seed the seed to utilize for random calls.
+     */
+    public BiasedRandomKeyGeneticAlgorithmBatch(ObjectiveSense sense, Configuration config, BiFunction<? super Vector, ? super Vector, Vector> heredityRule, Consumer<? super Vector> individualGenerator, ToDoubleFunction<? super Vector> decoder, Predicate<Heuristic> stoppingCriterion, long seed) {
+        this(config, null, seed, (island, random) -> new BiasedRandomKeyGeneticAlgorithm(sense, config, heredityRule, individualGenerator, decoder, stoppingCriterion, random), sense.getFitnessFunction());
+    }
+
+    /**
+     * Constructs a multi-thread genetic algorithm composed by the specified
+     * number of populations, which are islands that periodically exchange
+     * their elite individuals, and which evaluate the individuals by means of
+     * a primitive decoder and compare the objective function values according
+     * to an objective sense, so that no value is boxed.
+     * The CrossingOver object, DNAGenerator object and Decoder object are
+     * shared by all the threads. It is your own responsibility to implement
+     * synchronized methods or methods which don't arise race conditions.
+     * This multi-threading manager creates the specified number of heuristic
+     * objects using a different seed for each of it, i.e., using <tt>seed+i</tt>
+     * where <tt>seed</tt> is given and <tt>i</tt> is the index of the heuristic
+     * in the internal sorting.
+     * @param sense the objective sense
+     * @param config the Config object
+     * @param migration the Migration object
+     * @param heredityRule the CrossingOver used by all populations
+     * @param individualGenerator the SequenceGenerator used by all populations
+     * @param decoder the Decoder used by all populations
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     * @param seed the seed to utilize for random calls.
+     */
+    public BiasedRandomKeyGeneticAlgorithmBatch(ObjectiveSense sense, Configuration config, Migration migration, BiFunction<? super Vector, ? super Vector, Vector> heredityRule, Consumer<? super Vector> individualGenerator, ToDoubleFunction<? super Vector> decoder, Predicate<Heuristic> stoppingCriterion, long seed) {
+        this(config, migration, seed, (island, random) -> new BiasedRandomKeyGeneticAlgorithm(sense, config, heredityRule, individualGenerator, decoder, stoppingCriterion, island, random), sense.getFitnessFunction());
+    }
+
+    /**
+     * Constructs a multi-thread genetic algorithm composed by the specified
+     * number of independent populations, whose crossing over writes each
+     * offspring into the chromosome of a discarded individual, so that no
+     * generation allocates chromosomes.
+     * The CrossingOver object, DNAGenerator object and Decoder object are
+     * shared by all the threads. It is your own responsibility to implement
+     * synchronized methods or methods which don't arise race conditions.
+     * This multi-threading manager creates the specified number of heuristic
+     * objects using a different seed for each of it, i.e., using <tt>seed+i</tt>
+     * where <tt>seed</tt> is given and <tt>i</tt> is the index of the heuristic
+     * in the internal sorting.
+     * @param sense the objective sense
+     * @param config the Config object
+     * @param crossingOver the CrossingOver used by all populations
+     * @param individualGenerator the SequenceGenerator used by all populations
+     * @param decoder the Decoder used by all populations
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     * @param seed the seed to utilize for random calls.
+     */
+    public BiasedRandomKeyGeneticAlgorithmBatch(ObjectiveSense sense, Configuration config, CrossingOver crossingOver, Consumer<? super Vector> individualGenerator, ToDoubleFunction<? super Vector> decoder, Predicate<Heuristic> stoppingCriterion, long seed) {
+        this(config, null, seed, (island, random) -> new BiasedRandomKeyGeneticAlgorithm(sense, config, crossingOver, individualGenerator, decoder, stoppingCriterion, island, random), sense.getFitnessFunction());
+    }
+
+    /**
+     * Constructs a multi-thread genetic algorithm composed by the specified
+     * number of populations, which are islands that periodically exchange
+     * their elite individuals, and whose crossing over writes each offspring
+     * into the chromosome of a discarded individual, so that no generation
+     * allocates chromosomes.
+     * The CrossingOver object, DNAGenerator object and Decoder object are
+     * shared by all the threads. It is your own responsibility to implement
+     * synchronized methods or methods which don't arise race conditions.
+     * This multi-threading manager creates the specified number of heuristic
+     * objects using a different seed for each of it, i.e., using <tt>seed+i</tt>
+     * where <tt>seed</tt> is given and <tt>i</tt> is the index of the heuristic
+     * in the internal sorting.
+     * @param sense the objective sense
+     * @param config the Config object
+     * @param migration the Migration object
+     * @param crossingOver the CrossingOver used by all populations
+     * @param individualGenerator the SequenceGenerator used by all populations
+     * @param decoder the Decoder used by all populations
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     * @param seed the seed to utilize for random calls.
+     */
+    public BiasedRandomKeyGeneticAlgorithmBatch(ObjectiveSense sense, Configuration config, Migration migration, CrossingOver crossingOver, Consumer<? super Vector> individualGenerator, ToDoubleFunction<? super Vector> decoder, Predicate<Heuristic> stoppingCriterion, long seed) {
+        this(config, migration, seed, (island, random) -> new BiasedRandomKeyGeneticAlgorithm(sense, config, crossingOver, individualGenerator, decoder, stoppingCriterion, island, random), sense.getFitnessFunction());
+    }
+
+    /**
+     * Constructs a multi-thread genetic algorithm composed by the specified
+     * number of independent populations, whose chromosomes are generated by a
+     * {@link RandomKeyGenerator} and whose offspring are generated by a
+     * {@link UniformCrossover}, so that neither allocates nor depends on
+     * client code. Both of them work within the population storage and draw
+     * their seeds from the random number generator of their population, so
+     * that a run is reproducible from its seed.
+     * This multi-threading manager creates the specified number of heuristic
+     * objects using a different seed for each of it, i.e., using <tt>seed+i</tt>
+     * where <tt>seed</tt> is given and <tt>i</tt> is the index of the heuristic
+     * in the internal sorting.
+     * @param sense the objective sense
+     * @param config the Config object
+     * @param rho the probability that an offspring inherits a key from its
+     * elite parent
+     * @param decoder the Decoder used by all populations
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     * @param seed the seed to utilize for random calls.
+     */
+    public BiasedRandomKeyGeneticAlgorithmBatch(ObjectiveSense sense, Configuration config, double rho, ToDoubleFunction<? super Vector> decoder, Predicate<Heuristic> stoppingCriterion, long seed) {
+        this(sense, config, new UniformCrossover(rho), new RandomKeyGenerator(), decoder, stoppingCriterion, seed);
+    }
+
+    /**
+     * Constructs a multi-thread genetic algorithm composed by the specified
+     * number of populations, which are islands that periodically exchange
+     * their elite individuals, and whose chromosomes are generated by a
+     * {@link RandomKeyGenerator} and whose offspring are generated by a
+     * {@link UniformCrossover}, so that neither allocates nor depends on
+     * client code. Both of them work within the population storage and draw
+     * their seeds from the random number generator of their population.
+     * This multi-threading manager creates the specified number of heuristic
+     * objects using a different seed for each of it, i.e., using <tt>seed+i</tt>
+     * where <tt>seed</tt> is given and <tt>i</tt> is the index of the heuristic
+     * in the internal sorting.
+     * @param sense the objective sense
+     * @param config the Config object
+     * @param migration the Migration object
+     * @param rho the probability that an offspring inherits a key from its
+     * elite parent
+     * @param decoder the Decoder used by all populations
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     * @param seed the seed to utilize for random calls.
+     */
+    public BiasedRandomKeyGeneticAlgorithmBatch(ObjectiveSense sense, Configuration config, Migration migration, double rho, ToDoubleFunction<? super Vector> decoder, Predicate<Heuristic> stoppingCriterion, long seed) {
+        this(sense, config, migration, new UniformCrossover(rho), new RandomKeyGenerator(), decoder, stoppingCriterion, seed);
+    }
+
+    private BiasedRandomKeyGeneticAlgorithmBatch(Configuration config, Migration migration, long seed, BiFunction<Island, Random, BiasedRandomKeyGeneticAlgorithm> geneticAlgorithm, Comparator<? super Vector> fitnessFunction) {
         if(config.populations < 1)
             throw new IllegalArgumentException("At least 1 thread");
+        Island[] islands = new Island[config.populations];
+        if(migration != null) {
+            for(int i=0; i<config.populations; i++)
+                islands[i] = new Island(migration);
+            for(int i=0; i<config.populations; i++) {
+                int[] neighbours = migration.topology.neighbours(i, config.populations);
+                Island[] connected = new Island[neighbours.length];
+                for(int j=0; j<neighbours.length; j++)
+                    connected[j] = islands[neighbours[j]];
+                islands[i].connect(connected);
+            }
+        }
         BiasedRandomKeyGeneticAlgorithm[] geneticAlgorithms = new BiasedRandomKeyGeneticAlgorithm[config.populations];
         for(int i=0; i<config.populations; i++) {
             Random random = new Random();
             random.setSeed(seed+i);
-            geneticAlgorithms[i] = new BiasedRandomKeyGeneticAlgorithm(fitnessFunction, config, heredityRule, individualGenerator, decoder, stoppingCriterion, random);
+            geneticAlgorithms[i] = geneticAlgorithm.apply(islands[i], random);
         }
         super.setVectorComparator(fitnessFunction);
         super.setHeuristics(geneticAlgorithms);
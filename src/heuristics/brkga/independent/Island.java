@@ -0,0 +1,87 @@
+package heuristics.brkga.independent;
+
+import heuristics.Checkpoint;
+import heuristics.Vector;
+import heuristics.brkga.client.Migration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A population which exchanges individuals with its neighbours.
+ * Each island owns a lock-free inbox where the neighbours put copies of their
+ * elite individuals, so that the populations never lock each other.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ */
+class Island {
+    private final Queue<Vector> inbox;
+    private final Migration migration;
+    private Island[] neighbours;
+
+    Island(Migration migration) {
+        this.migration = migration;
+        inbox = new ConcurrentLinkedQueue<>();
+        neighbours = new Island[0];
+    }
+
+    void connect(Island[] neighbours) {
+        this.neighbours = neighbours;
+    }
+
+    /**
+     * Writes the received migrants, which are not immigrated yet, into a
+     * checkpoint.
+     */
+    void checkpoint(Checkpoint.Writer out) {
+        Vector[] migrants = inbox.toArray(new Vector[0]);
+        out.putInt(migrants.length);
+        for(Vector migrant: migrants)
+            out.putVector(migrant);
+    }
+
+    /**
+     * Restores the received migrants from a checkpoint.
+     */
+    void restore(Checkpoint.Reader in) {
+        inbox.clear();
+        for(int i=in.getInt(); i>0; i--)
+            inbox.add(in.getVector());
+    }
+
+    /**
+     * Sends copies of the best individuals of a ranked population to the
+     * neighbours, if the generation is a migration one.
+     * @param population the ranked population
+     * @param generation the current generation
+     * @param eliteSize the number of elite individuals
+     */
+    void emigrate(Population population, int generation, int eliteSize) {
+        if(generation%migration.interval != 0)
+            return;
+        int migrants = Math.min(migration.migrants, eliteSize);
+        for(Island neighbour: neighbours)
+            for(int i=0; i<migrants; i++)
+                neighbour.inbox.add(new Vector(population.get(i)));
+    }
+
+    /**
+     * Replaces the last individuals of a ranked population with the
+     * received migrants, without replacing the elite individuals.
+     * The migrants exceeding the number of non-elite individuals are
+     * discarded.
+     * @param population the ranked population
+     * @param eliteSize the number of elite individuals
+     * @return the number of replaced individuals
+     */
+    int immigrate(Population population, int eliteSize) {
+        int replaced = 0;
+        for(int i=population.size()-1; i>=eliteSize; i--) {
+            Vector migrant = inbox.poll();
+            if(migrant == null)
+                return replaced;
+            population.set(i, migrant);
+            replaced++;
+        }
+        inbox.clear();
+        return replaced;
+    }
+}
@@ -1,41 +1,343 @@
 package heuristics.brkga.independent;
 
+import heuristics.BatchDecoder;
+import heuristics.Checkpoint;
+import heuristics.ValueComparator;
 import heuristics.Vector;
-import java.util.Arrays;
-import java.util.Comparator;
+import heuristics.brkga.client.RandomKeyGenerator;
+import heuristics.brkga.client.UniformCrossover;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Random;
 import java.util.function.Consumer;
-import java.util.stream.Stream;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
 
 /**
- * A population made up by individuals
+ * A population made up by individuals.
+ * The chromosomes of all the individuals are stored into a single contiguous
+ * array and their objective function values into a parallel array, so that
+ * the individuals are vectors which are views of that storage. The individuals
+ * are sorted through a permutation of indexes, without moving any chromosome.
+ * The storage holds a spare chromosome besides those of the individuals: an
+ * offspring is written into the spare chromosome and then it swaps with the
+ * chromosome of the individual it replaces, which becomes the next spare one,
+ * so that a generation neither allocates nor copies chromosomes.
+ * The population remembers which individuals changed since the last ranking:
+ * only the individuals whose chromosome changed are decoded again, and only
+ * the changed individuals are ranked and then merged with the unchanged ones,
+ * which are already sorted. A ranking sorts only the best individuals, which
+ * are selected on their primitive values, while the others are left in no
+ * particular order.
  * @author Mirko Alicastro {@link https://mirkoalicastro.com}
  */
 public class Population implements Iterable<Vector> {
-    private final Vector[] individuals;
+    private static final int INSERTION_SORT_THRESHOLD = 7;
+    private static final byte RANKED = 0, UNRANKED = 1, DIRTY = 2;
+    private final double[] keys;
+    private final double[] values;
+    private final Individual[] individuals;
+    private final Individual spare;
+    private final int[] order, buffer;
+    private final byte[] states;
+    private Vector[] pending;
+    private double[] decoded;
+    /**
+     * The number of best individuals which are sorted in the first positions.
+     */
+    private int sorted;
     Population(int p, int n) {
-        individuals = new Vector[p];
-        for(int i=0; i<individuals.length; i++)
-            individuals[i] = new Vector(n);
+        if((long)(p+1)*n > Integer.MAX_VALUE-8)
+            throw new IllegalArgumentException("The population is too large to be stored into a single array");
+        keys = new double[(p+1)*n];
+        values = new double[p+1];
+        individuals = new Individual[p];
+        order = new int[p];
+        buffer = new int[p];
+        states = new byte[p];
+        for(int i=0; i<p; i++) {
+            individuals[i] = new Individual(i, n);
+            order[i] = i;
+            states[i] = DIRTY;
+        }
+        spare = new Individual(p, n);
     }
     Vector get(int i) {
-        return individuals[i];
+        return individuals[order[i]];
     }
+    /**
+     * Replaces the <i>i</i>-th individual with a copy of the given one, whose
+     * value is copied too.
+     */
     void set(int i, Vector individual) {
-        individuals[i] = individual;
+        Vector target = individuals[order[i]];
+        if(individual != target) {
+            target.copyFrom(individual);
+            states[order[i]] = UNRANKED;
+        }
+    }
+    /**
+     * Fills the chromosome of the <i>i</i>-th individual by means of the
+     * generator.
+     */
+    void generate(int i, Consumer<? super Vector> generator) {
+        generator.accept(individuals[order[i]]);
+        states[order[i]] = DIRTY;
+    }
+    /**
+     * Fills the chromosome of the <i>i</i>-th individual with the random keys
+     * given by a seed, within the storage.
+     */
+    void generate(int i, long seed) {
+        Individual individual = individuals[order[i]];
+        RandomKeyGenerator.generate(keys, individual.getOffset(), individual.getLength(), seed);
+        states[order[i]] = DIRTY;
+    }
+    /**
+     * Writes the offspring of the <i>elite</i>-th and of the
+     * <i>nonElite</i>-th individuals into the spare chromosome, within the
+     * storage.
+     */
+    void cross(int elite, int nonElite, UniformCrossover crossover, long seed) {
+        crossover.apply(keys, individuals[order[elite]].getOffset(), keys, individuals[order[nonElite]].getOffset(), keys, spare.getOffset(), spare.getLength(), seed);
+    }
+    /**
+     * Returns the spare chromosome, where the offspring which will replace an
+     * individual must be written.
+     */
+    Vector getSpare() {
+        return spare;
+    }
+    /**
+     * Replaces the chromosome of the <i>i</i>-th individual with the spare
+     * chromosome, which in turn takes the replaced chromosome.
+     */
+    void replaceWithSpare(int i) {
+        individuals[order[i]].swap(spare);
+        states[order[i]] = DIRTY;
+    }
+    int size() {
+        return individuals.length;
     }
     void applyToAll(Consumer<? super Vector> c, boolean parallel) {
-        Stream<Vector> stream = Arrays.stream(individuals);
+        IntStream stream = IntStream.range(0, individuals.length);
+        if(parallel)
+            stream = stream.parallel();
+        stream.forEach(i -> {
+            c.accept(individuals[i]);
+            states[i] = DIRTY;
+        });
+    }
+    /**
+     * Fills the chromosomes of all the individuals with random keys, whose
+     * seeds are drawn from the random number generator.
+     */
+    void generateAll(Random random, boolean parallel) {
+        long[] seeds = random.longs(individuals.length).toArray();
+        IntStream stream = IntStream.range(0, individuals.length);
+        if(parallel)
+            stream = stream.parallel();
+        stream.forEach(i -> {
+            RandomKeyGenerator.generate(keys, individuals[i].getOffset(), individuals[i].getLength(), seeds[i]);
+            states[i] = DIRTY;
+        });
+    }
+    /**
+     * Decodes the individuals whose chromosome changed since they were last
+     * decoded. A batch decoder decodes them in chunks.
+     */
+    void evaluate(ToDoubleFunction<? super Vector> decoder, boolean parallel) {
+        if(decoder instanceof BatchDecoder) {
+            evaluate((BatchDecoder) decoder, parallel);
+            return;
+        }
+        IntStream stream = IntStream.range(0, individuals.length).filter(i -> states[i] == DIRTY);
         if(parallel)
             stream = stream.parallel();
-        stream.forEach(c);
+        stream.forEach(i -> {
+            values[i] = decoder.applyAsDouble(individuals[i]);
+            states[i] = UNRANKED;
+        });
+    }
+    private void evaluate(BatchDecoder decoder, boolean parallel) {
+        if(pending == null) {
+            pending = new Vector[individuals.length];
+            decoded = new double[individuals.length];
+        }
+        int count = 0;
+        for(int i=0; i<individuals.length; i++)
+            if(states[i] == DIRTY)
+                pending[count++] = individuals[i];
+        if(parallel)
+            decoder.decodeInChunks(pending, count, decoded);
+        else if(count > 0)
+            decoder.decode(pending, 0, count, decoded);
+        for(int i=0; i<count; i++) {
+            Individual individual = (Individual) pending[i];
+            individual.setValue(decoded[i]);
+            states[individual.index] = UNRANKED;
+        }
+    }
+    /**
+     * Writes the chromosomes, the values and the ranking of the individuals
+     * into a checkpoint.
+     */
+    void checkpoint(Checkpoint.Writer out) {
+        out.putInt(individuals.length).putInt(spare.getLength()).putInt(sorted);
+        for(Individual individual: individuals)
+            out.putInt(individual.getOffset());
+        out.putInt(spare.getOffset());
+        out.putDoubles(keys, 0, keys.length).putDoubles(values, 0, values.length);
+        out.putInts(order, 0, order.length).putBytes(states);
+    }
+    /**
+     * Restores the chromosomes, the values and the ranking of the individuals
+     * from a checkpoint of a population of the same size.
+     */
+    void restore(Checkpoint.Reader in) {
+        if(in.getInt() != individuals.length || in.getInt() != spare.getLength())
+            throw new IllegalArgumentException("The checkpointed population has a different size");
+        sorted = in.getInt();
+        for(Individual individual: individuals)
+            individual.setOffset(in.getInt());
+        spare.setOffset(in.getInt());
+        in.getDoubles(keys, 0, keys.length);
+        in.getDoubles(values, 0, values.length);
+        in.getInts(order, 0, order.length);
+        System.arraycopy(in.getBytes(), 0, states, 0, states.length);
+    }
+    /**
+     * Moves the <i>k</i> best individuals in the first <i>k</i> positions,
+     * sorted, while the other individuals follow in no particular order.
+     * The individuals sorted by the previous ranking which didn't change are
+     * still sorted: the best ones among the other individuals are selected,
+     * sorted and then merged with them. An unchanged individual precedes the
+     * changed ones with the same value.
+     * The changed individuals must be evaluated before.
+     */
+    void rank(ValueComparator comparator, int k) {
+        int unchanged = 0, changed = 0;
+        for(int i=0; i<order.length; i++)
+            if(states[order[i]] != RANKED)
+                changed++;
+            else if(i < sorted)
+                unchanged++;
+        if(changed == 0 && k <= sorted)
+            return;
+        int candidates = order.length-unchanged;
+        for(int i=order.length-1, u=unchanged, c=order.length; i>=0; i--) {
+            int index = order[i];
+            if(i < sorted && states[index] == RANKED)
+                buffer[--u] = index;
+            else
+                order[--c] = index;
+            states[index] = RANKED;
+        }
+        int best = Math.min(k, candidates);
+        select(order, unchanged, order.length, unchanged+best, comparator);
+        System.arraycopy(order, unchanged, buffer, unchanged, best);
+        mergeSort(buffer, order, unchanged, unchanged+best, comparator);
+        System.arraycopy(order, unchanged, buffer, unchanged, best);
+        merge(buffer, order, 0, unchanged, unchanged+best, comparator);
+        sorted = best < candidates ? k : order.length;
+    }
+
+    /**
+     * Moves the best indexes of a range of the permutation into
+     * <i>[low, k)</i>, in no particular order. It is a quickselect with
+     * three-way partitioning, so that many equal values don't degrade it,
+     * which falls back to a sort when the partitions don't shrink fast
+     * enough. The fallback utilizes the same range of the buffer.
+     */
+    private void select(int[] a, int low, int high, int k, ValueComparator comparator) {
+        int depth = 2*(32-Integer.numberOfLeadingZeros(high-low));
+        while(low < k && k < high) {
+            if(high-low < INSERTION_SORT_THRESHOLD) {
+                insertionSort(a, low, high, comparator);
+                return;
+            }
+            if(depth-- == 0) {
+                System.arraycopy(a, low, buffer, low, high-low);
+                mergeSort(buffer, a, low, high, comparator);
+                return;
+            }
+            double pivot = median(values[a[low]], values[a[(low+high) >>> 1]], values[a[high-1]], comparator);
+            int lt = low, gt = high;
+            for(int i=low; i<gt; ) {
+                int cmp = comparator.compare(values[a[i]], pivot);
+                if(cmp < 0)
+                    swap(a, lt++, i++);
+                else if(cmp > 0)
+                    swap(a, i, --gt);
+                else
+                    i++;
+            }
+            if(k <= lt)
+                high = lt;
+            else if(k >= gt)
+                low = gt;
+            else
+                return;
+        }
+    }
+
+    private static double median(double a, double b, double c, ValueComparator comparator) {
+        if(comparator.compare(a, b) > 0) {
+            double tmp = a;
+            a = b;
+            b = tmp;
+        }
+        if(comparator.compare(b, c) > 0) {
+            b = c;
+            if(comparator.compare(a, b) > 0)
+                b = a;
+        }
+        return b;
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int tmp = a[i];
+        a[i] = a[j];
+        a[j] = tmp;
     }
-    void parallelSort(Comparator<? super Vector> comparator) {
-        Arrays.parallelSort(individuals, comparator);
+
+    /**
+     * Sorts a range of the permutation, from <i>src</i> into <i>dest</i>,
+     * which must hold the same indexes. The sort is stable, as the sort of
+     * objects of {@link java.util.Arrays}.
+     */
+    private void mergeSort(int[] src, int[] dest, int low, int high, ValueComparator comparator) {
+        if(high-low < INSERTION_SORT_THRESHOLD) {
+            insertionSort(dest, low, high, comparator);
+            return;
+        }
+        int mid = (low+high) >>> 1;
+        mergeSort(dest, src, low, mid, comparator);
+        mergeSort(dest, src, mid, high, comparator);
+        merge(src, dest, low, mid, high, comparator);
     }
-    void sort(Comparator<? super Vector> comparator) {
-        Arrays.sort(individuals, comparator);
+
+    private void insertionSort(int[] a, int low, int high, ValueComparator comparator) {
+        for(int i=low+1; i<high; i++)
+            for(int j=i; j>low && comparator.compare(values[a[j-1]], values[a[j]]) > 0; j--)
+                swap(a, j, j-1);
+    }
+
+    /**
+     * Merges two adjacent sorted ranges of <i>src</i> into <i>dest</i>. On
+     * equal values, the left range precedes the right one.
+     */
+    private void merge(int[] src, int[] dest, int low, int mid, int high, ValueComparator comparator) {
+        if(low == mid || mid == high || comparator.compare(values[src[mid-1]], values[src[mid]]) <= 0) {
+            System.arraycopy(src, low, dest, low, high-low);
+            return;
+        }
+        for(int i=low, p=low, q=mid; i<high; i++) {
+            if(q >= high || p < mid && comparator.compare(values[src[p]], values[src[q]]) <= 0)
+                dest[i] = src[p++];
+            else
+                dest[i] = src[q++];
+        }
     }
 
     /**
@@ -57,8 +359,46 @@ public class Population implements Iterable<Vector> {
             public Vector next() {
                 if(!hasNext())
                     throw new NoSuchElementException();
-                return individuals[i++];
+                return get(i++);
             }
         };
     }
+
+    /**
+     * An individual whose chromosome is a range of the population keys and
+     * whose value is a cell of the population values.
+     */
+    private final class Individual extends Vector {
+        private final int index;
+
+        Individual(int index, int n) {
+            super(keys, index*n, n);
+            this.index = index;
+        }
+
+        void swap(Individual other) {
+            int tmp = offset;
+            offset = other.offset;
+            other.offset = tmp;
+        }
+
+        int getOffset() {
+            return offset;
+        }
+
+        void setOffset(int offset) {
+            this.offset = offset;
+        }
+
+        @Override
+        public double getValue() {
+            return values[index];
+        }
+
+        @Override
+        public Vector setValue(double value) {
+            values[index] = value;
+            return this;
+        }
+    }
 }
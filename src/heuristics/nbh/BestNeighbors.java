@@ -0,0 +1,137 @@
+package heuristics.nbh;
+
+import heuristics.BatchDecoder;
+import heuristics.ValueComparator;
+import heuristics.Vector;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+/**
+ * The neighbors with the best objective function value within a
+ * neighborhood, collected in a single pass over the neighborhood.
+ * Only the current best neighbors are retained during the pass, so that the
+ * neighborhood is never materialized as a whole. The neighbors are kept in
+ * the neighborhood encounter order, even when they are collected by a
+ * parallel stream.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ * @param <T> the type of the neighbors, i.e., vectors or moves
+ */
+public final class BestNeighbors<T> {
+    private final ValueComparator valueComparator;
+    private final boolean bounded;
+    private final double bound;
+    private final List<T> neighbors;
+    private double value;
+
+    private BestNeighbors(ValueComparator valueComparator, boolean bounded, double bound) {
+        this.valueComparator = valueComparator;
+        this.bounded = bounded;
+        this.bound = bound;
+        neighbors = new ArrayList<>();
+    }
+
+    /**
+     * Collects the best neighbors of a neighborhood.
+     * @param <T> the type of the neighbors
+     * @param neighborhood the stream of the neighbors
+     * @param evaluator the function from a neighbor to its objective function
+     * value
+     * @param valueComparator the comparator of the objective function values
+     * @return the best neighbors
+     */
+    public static <T> BestNeighbors<T> of(Stream<? extends T> neighborhood, ToDoubleFunction<? super T> evaluator, ValueComparator valueComparator) {
+        return of(neighborhood, evaluator, valueComparator, false, 0);
+    }
+
+    /**
+     * Collects the best neighbors of a neighborhood among those which are
+     * strictly worse than a bound, i.e., the best neighbors which come after
+     * the bound in the order of the value comparator.
+     * @param <T> the type of the neighbors
+     * @param neighborhood the stream of the neighbors
+     * @param evaluator the function from a neighbor to its objective function
+     * value
+     * @param valueComparator the comparator of the objective function values
+     * @param bound the value which bounds the neighbors
+     * @return the best neighbors
+     */
+    public static <T> BestNeighbors<T> of(Stream<? extends T> neighborhood, ToDoubleFunction<? super T> evaluator, ValueComparator valueComparator, double bound) {
+        return of(neighborhood, evaluator, valueComparator, true, bound);
+    }
+
+    /**
+     * Collects the best neighbors of a neighborhood of vectors, which are
+     * decoded in chunks by a batch decoder, and sets their objective function
+     * values. Unlike the other methods, the neighborhood is materialized as a
+     * whole, since a chunk of vectors is decoded at once.
+     * @param neighborhood the stream of the neighbors
+     * @param decoder the batch decoder
+     * @param valueComparator the comparator of the objective function values
+     * @return the best neighbors
+     * @see BatchDecoder#decodeInChunks(heuristics.Vector[], int, double[]) 
+     */
+    public static BestNeighbors<Vector> decode(Stream<? extends Vector> neighborhood, BatchDecoder decoder, ValueComparator valueComparator) {
+        Vector[] neighbors = neighborhood.toArray(Vector[]::new);
+        double[] values = new double[neighbors.length];
+        decoder.decodeInChunks(neighbors, neighbors.length, values);
+        BestNeighbors<Vector> best = new BestNeighbors<>(valueComparator, false, 0);
+        for(int i=0; i<neighbors.length; i++)
+            best.accept(neighbors[i].setValue(values[i]), values[i]);
+        return best;
+    }
+
+    private static <T> BestNeighbors<T> of(Stream<? extends T> neighborhood, ToDoubleFunction<? super T> evaluator, ValueComparator valueComparator, boolean bounded, double bound) {
+        return neighborhood.collect(() -> new BestNeighbors<>(valueComparator, bounded, bound), (best, neighbor) -> best.accept(neighbor, evaluator.applyAsDouble(neighbor)), BestNeighbors::combine);
+    }
+
+    private void accept(T neighbor, double neighborValue) {
+        if(bounded && valueComparator.compare(neighborValue, bound) <= 0)
+            return;
+        int comp = neighbors.isEmpty() ? -1 : valueComparator.compare(neighborValue, value);
+        if(comp < 0) {
+            neighbors.clear();
+            value = neighborValue;
+        }
+        if(comp <= 0)
+            neighbors.add(neighbor);
+    }
+
+    private void combine(BestNeighbors<T> other) {
+        if(other.neighbors.isEmpty())
+            return;
+        int comp = neighbors.isEmpty() ? 1 : valueComparator.compare(value, other.value);
+        if(comp > 0) {
+            neighbors.clear();
+            value = other.value;
+        }
+        if(comp >= 0)
+            neighbors.addAll(other.neighbors);
+    }
+
+    /**
+     * Returns true if no neighbor was collected.
+     * @return true if no neighbor was collected
+     */
+    public boolean isEmpty() {
+        return neighbors.isEmpty();
+    }
+
+    /**
+     * Returns the objective function value shared by the best neighbors.
+     * @return the best objective function value
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the best neighbors, in the neighborhood encounter order.
+     * @return an unmodifiable list of the best neighbors
+     */
+    public List<T> getNeighbors() {
+        return Collections.unmodifiableList(neighbors);
+    }
+}
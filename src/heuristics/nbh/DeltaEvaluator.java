@@ -0,0 +1,45 @@
+package heuristics.nbh;
+
+import heuristics.HeuristicMetrics;
+import heuristics.Vector;
+
+/**
+ * An incremental evaluator of moves.
+ * The objective function value of the neighbor obtained by applying a move to
+ * a vector is the vector value plus the delta of the move, so that a
+ * neighbor can be scored without building and decoding it.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ * @param <M> the type of the moves
+ * @see Move
+ */
+@FunctionalInterface
+public interface DeltaEvaluator<M extends Move> {
+
+    /**
+     * Returns the difference between the objective function value of the
+     * neighbor obtained by applying a move to a vector and the objective
+     * function value of that vector.
+     * @param vector the vector to move from, whose value is up to date
+     * @param move the move to evaluate
+     * @return the objective function value variation
+     */
+    double delta(Vector vector, M move);
+
+    /**
+     * Returns this evaluator, whose evaluations are counted and timed as
+     * decoder calls while the metrics are enabled.
+     * @param metrics the metrics of the heuristic which evaluates the moves
+     * @return the instrumented evaluator
+     * @see HeuristicMetrics#instrument(java.util.function.ToDoubleFunction) 
+     */
+    default DeltaEvaluator<M> instrumentedBy(HeuristicMetrics metrics) {
+        return (vector, move) -> {
+            if(!metrics.isEnabled())
+                return delta(vector, move);
+            long startedAt = System.nanoTime();
+            double delta = delta(vector, move);
+            metrics.decoded(startedAt);
+            return delta;
+        };
+    }
+}
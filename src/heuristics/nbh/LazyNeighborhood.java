@@ -0,0 +1,135 @@
+package heuristics.nbh;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * A neighborhood whose neighbors are generated on demand.
+ * The neighbors are indexed from 0 to <i>size()</i>-1 and the <i>index</i>-th
+ * neighbor is generated only when an iteration over the neighborhood reaches
+ * it, so that a consumer that stops early, e.g., a first improvement local
+ * search, doesn't pay for the neighbors it doesn't visit.
+ * The spliterator splits the index range, so that parallel consumers can
+ * split the neighborhood without a backing list: the <i>get</i> method must
+ * therefore be safe to call concurrently.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ * @param <T> the type of the neighbors, i.e., vectors or moves
+ */
+public abstract class LazyNeighborhood<T> implements Iterable<T> {
+    private final int size;
+
+    /**
+     * Constructs a neighborhood made up by the specified number of neighbors.
+     * @param size the number of neighbors
+     */
+    protected LazyNeighborhood(int size) {
+        if(size < 0)
+            throw new IllegalArgumentException("The neighborhood size can't be negative");
+        this.size = size;
+    }
+
+    /**
+     * Returns a neighborhood whose <i>index</i>-th neighbor is generated by
+     * the specified function.
+     * @param <T> the type of the neighbors
+     * @param size the number of neighbors
+     * @param generator the function from an index to the neighbor
+     * @return the lazy neighborhood
+     */
+    public static <T> LazyNeighborhood<T> of(int size, IntFunction<? extends T> generator) {
+        return new LazyNeighborhood<T>(size) {
+            @Override
+            public T get(int index) {
+                return generator.apply(index);
+            }
+        };
+    }
+
+    /**
+     * Returns the number of neighbors.
+     * @return the number of neighbors
+     */
+    public final int size() {
+        return size;
+    }
+
+    /**
+     * Generates the <i>index</i>-th neighbor.
+     * @param index the index of the neighbor
+     * @return the neighbor
+     */
+    public abstract T get(int index);
+
+    /**
+     * Gets an iterator which generates the neighbors one at a time.
+     * @return iterator over the neighbors
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            int i = 0;
+            @Override
+            public boolean hasNext() {
+                return i < size;
+            }
+
+            @Override
+            public T next() {
+                if(!hasNext())
+                    throw new NoSuchElementException();
+                return get(i++);
+            }
+        };
+    }
+
+    /**
+     * Gets a spliterator which generates the neighbors one at a time and
+     * which splits in halves the range of the indexes still to generate.
+     * @return spliterator over the neighbors
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new RangeSpliterator(0, size);
+    }
+
+    private class RangeSpliterator implements Spliterator<T> {
+        private int from;
+        private final int to;
+
+        RangeSpliterator(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if(from >= to)
+                return false;
+            action.accept(get(from++));
+            return true;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int middle = (from+to) >>> 1;
+            if(middle <= from)
+                return null;
+            Spliterator<T> prefix = new RangeSpliterator(from, middle);
+            from = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to-from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+        }
+    }
+}
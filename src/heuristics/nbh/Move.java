@@ -0,0 +1,23 @@
+package heuristics.nbh;
+
+import heuristics.Vector;
+
+/**
+ * A move which transforms a vector into one of its neighbors.
+ * Moves let a neighborhood-based heuristic score a neighbor through a
+ * {@link DeltaEvaluator} without building it: only the neighbors that are
+ * actually accepted are materialized by the <i>applyTo</i> method.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ * @see DeltaEvaluator
+ */
+public interface Move {
+
+    /**
+     * Returns the neighbor obtained by applying this move to a vector.
+     * The given vector must not be modified, and the returned vector must not
+     * share its array with it.
+     * @param vector the vector to move from
+     * @return the neighbor
+     */
+    Vector applyTo(Vector vector);
+}
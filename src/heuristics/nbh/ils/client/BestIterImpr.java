@@ -1,9 +1,17 @@
 package heuristics.nbh.ils.client;
 
+import heuristics.BatchDecoder;
+import heuristics.HeuristicMetrics;
+import heuristics.ObjectiveSense;
+import heuristics.ValueComparator;
 import heuristics.Vector;
-import java.util.List;
+import heuristics.nbh.BestNeighbors;
+import heuristics.nbh.DeltaEvaluator;
+import heuristics.nbh.Move;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 import java.util.Comparator;
+import java.util.stream.StreamSupport;
 
 /**
  * An implementation of a best improvement local search procedure.
@@ -12,25 +20,99 @@ import java.util.Comparator;
 public final class BestIterImpr implements Function<Vector, Vector> {
 
     private final int maxIterations;
-    private final Function<Vector, List<Vector>> neighborhood;
-    private final Function<? super Vector, Double> decoder;
-    private final Comparator<? super Vector> fitnessFunction;
+    private final Function<Vector, ? extends Iterable<Vector>> neighborhood;
+    private final Function<Vector, ? extends Iterable<? extends Move>> moveNeighborhood;
+    private final DeltaEvaluator<Move> deltaEvaluator;
+    private final ToDoubleFunction<? super Vector> decoder;
+    private final ValueComparator valueComparator;
 
     /**
      * Constructs a local search procedure.
      * @param maxIterations the maximum number of iterations to perform to reach
      * a local optimum
-     * @param neighborhood the neighborhood function
+     * @param neighborhood the neighborhood function, whose neighbors can be
+     * generated lazily
      * @param decoder the decoder used to evaluate vectors
      * @param fitnessFunction the fitness function type
      */
-    public BestIterImpr(int maxIterations, Function<Vector, List<Vector>> neighborhood, Function<? super Vector, Double> decoder, Comparator<? super Vector> fitnessFunction) {
+    public BestIterImpr(int maxIterations, Function<Vector, ? extends Iterable<Vector>> neighborhood, Function<? super Vector, Double> decoder, Comparator<? super Vector> fitnessFunction) {
+        this(maxIterations, neighborhood, null, decoder::apply, null, ValueComparator.of(fitnessFunction));
+    }
+
+    /**
+     * Constructs a local search procedure which evaluates the vectors by means
+     * of a primitive decoder and compares the objective function values
+     * according to an objective sense, so that no value is boxed.
+     * @param maxIterations the maximum number of iterations to perform to reach
+     * a local optimum
+     * @param neighborhood the neighborhood function, whose neighbors can be
+     * generated lazily
+     * @param decoder the decoder used to evaluate vectors
+     * @param sense the objective sense
+     */
+    public BestIterImpr(int maxIterations, Function<Vector, ? extends Iterable<Vector>> neighborhood, ToDoubleFunction<? super Vector> decoder, ObjectiveSense sense) {
+        this(maxIterations, neighborhood, null, decoder, null, sense);
+    }
+
+    /**
+     * Constructs a local search procedure which explores the neighborhood by
+     * means of moves, scored by a delta evaluator.
+     * Only the moves which are accepted are applied.
+     * @param <M> the type of the moves
+     * @param maxIterations the maximum number of iterations to perform to reach
+     * a local optimum
+     * @param moveNeighborhood the function from a vector to the moves towards
+     * its neighbors, which can be generated lazily
+     * @param decoder the decoder used to evaluate the starting vector
+     * @param deltaEvaluator the evaluator of the moves
+     * @param fitnessFunction the fitness function type
+     */
+    @SuppressWarnings("unchecked")
+    public <M extends Move> BestIterImpr(int maxIterations, Function<Vector, ? extends Iterable<M>> moveNeighborhood, Function<? super Vector, Double> decoder, DeltaEvaluator<? super M> deltaEvaluator, Comparator<? super Vector> fitnessFunction) {
+        this(maxIterations, null, moveNeighborhood, decoder::apply, (DeltaEvaluator<Move>) deltaEvaluator, ValueComparator.of(fitnessFunction));
+    }
+
+    /**
+     * Constructs a local search procedure which explores the neighborhood by
+     * means of moves, scored by a delta evaluator, and which compares the
+     * objective function values according to an objective sense, so that no
+     * value is boxed.
+     * Only the moves which are accepted are applied.
+     * @param <M> the type of the moves
+     * @param maxIterations the maximum number of iterations to perform to reach
+     * a local optimum
+     * @param moveNeighborhood the function from a vector to the moves towards
+     * its neighbors, which can be generated lazily
+     * @param decoder the decoder used to evaluate the starting vector
+     * @param deltaEvaluator the evaluator of the moves
+     * @param sense the objective sense
+     */
+    @SuppressWarnings("unchecked")
+    public <M extends Move> BestIterImpr(int maxIterations, Function<Vector, ? extends Iterable<M>> moveNeighborhood, ToDoubleFunction<? super Vector> decoder, DeltaEvaluator<? super M> deltaEvaluator, ObjectiveSense sense) {
+        this(maxIterations, null, moveNeighborhood, decoder, (DeltaEvaluator<Move>) deltaEvaluator, sense);
+    }
+
+    private BestIterImpr(int maxIterations, Function<Vector, ? extends Iterable<Vector>> neighborhood, Function<Vector, ? extends Iterable<? extends Move>> moveNeighborhood, ToDoubleFunction<? super Vector> decoder, DeltaEvaluator<Move> deltaEvaluator, ValueComparator valueComparator) {
         if(maxIterations < 1)
             throw new IllegalArgumentException("The maximum number of iterations must be greater than 0");
         this.maxIterations = maxIterations;
         this.neighborhood = neighborhood;
+        this.moveNeighborhood = moveNeighborhood;
+        this.deltaEvaluator = deltaEvaluator;
         this.decoder = decoder;
-        this.fitnessFunction = fitnessFunction;
+        this.valueComparator = valueComparator;
+    }
+
+    /**
+     * Returns a copy of this local search procedure whose decoder calls and
+     * move evaluations are counted and timed as decoder calls while the
+     * metrics are enabled.
+     * @param metrics the metrics of the heuristic which runs the local search
+     * @return the instrumented local search procedure
+     * @see HeuristicMetrics#instrument(java.util.function.ToDoubleFunction) 
+     */
+    public BestIterImpr instrumentedBy(HeuristicMetrics metrics) {
+        return new BestIterImpr(maxIterations, neighborhood, moveNeighborhood, metrics.instrument(decoder), deltaEvaluator == null ? null : deltaEvaluator.instrumentedBy(metrics), valueComparator);
     }
     
     /**
@@ -49,16 +131,21 @@ public final class BestIterImpr implements Function<Vector, Vector> {
     public Vector apply(Vector t) {
         boolean improve = true;
         Vector cur = t;
-        cur.setValue(decoder.apply(cur));
+        cur.setValue(decoder.applyAsDouble(cur));
+        if(moveNeighborhood != null)
+            return applyMoves(cur);
         int iterations = 0;
         while(improve && iterations < maxIterations) {
-            List<Vector> neighbors = neighborhood.apply(cur);
-            neighbors.parallelStream().forEach(neighbor -> neighbor.setValue(decoder.apply(neighbor)));
-            if(neighbors.isEmpty())
+            Iterable<Vector> neighbors = neighborhood.apply(cur);
+            BestNeighbors<Vector> bestNeighbors;
+            if(decoder instanceof BatchDecoder)
+                bestNeighbors = BestNeighbors.decode(StreamSupport.stream(neighbors.spliterator(), true), (BatchDecoder) decoder, valueComparator);
+            else
+                bestNeighbors = BestNeighbors.of(StreamSupport.stream(neighbors.spliterator(), true), neighbor -> neighbor.setValue(decoder.applyAsDouble(neighbor)).getValue(), valueComparator);
+            if(bestNeighbors.isEmpty())
                 return cur;
-            neighbors.sort(fitnessFunction);
-            Vector bestNeighbor = neighbors.get(0);
-            if(fitnessFunction.compare(bestNeighbor, cur) < 0)
+            Vector bestNeighbor = bestNeighbors.getNeighbors().get(0);
+            if(valueComparator.compare(bestNeighbor.getValue(), cur.getValue()) < 0)
                 cur = bestNeighbor;
             else
                 improve = false;
@@ -66,4 +153,23 @@ public final class BestIterImpr implements Function<Vector, Vector> {
         }
         return cur;
     }
+
+    private Vector applyMoves(Vector cur) {
+        boolean improve = true;
+        int iterations = 0;
+        while(improve && iterations < maxIterations) {
+            Vector parent = cur;
+            Iterable<? extends Move> moves = moveNeighborhood.apply(parent);
+            BestNeighbors<Move> bestMoves = BestNeighbors.of(StreamSupport.stream(moves.spliterator(), true), move -> parent.getValue()+deltaEvaluator.delta(parent, move), valueComparator);
+            if(bestMoves.isEmpty())
+                return cur;
+            double bestValue = bestMoves.getValue();
+            if(valueComparator.compare(bestValue, cur.getValue()) < 0)
+                cur = bestMoves.getNeighbors().get(0).applyTo(cur).setValue(bestValue);
+            else
+                improve = false;
+            iterations++;
+        }
+        return cur;
+    }
 }
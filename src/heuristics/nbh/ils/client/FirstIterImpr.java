@@ -1,8 +1,13 @@
 package heuristics.nbh.ils.client;
 
+import heuristics.HeuristicMetrics;
+import heuristics.ObjectiveSense;
+import heuristics.ValueComparator;
 import heuristics.Vector;
-import java.util.List;
+import heuristics.nbh.DeltaEvaluator;
+import heuristics.nbh.Move;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 import java.util.Comparator;
 
 /**
@@ -12,31 +17,106 @@ import java.util.Comparator;
 public final class FirstIterImpr implements Function<Vector, Vector> {
 
     private final int maxIterations;
-    private final Function<Vector, List<Vector>> neighborhood;
-    private final Function<? super Vector, Double> decoder;
-    private final Comparator<? super Vector> fitnessFunction;
+    private final Function<Vector, ? extends Iterable<Vector>> neighborhood;
+    private final Function<Vector, ? extends Iterable<? extends Move>> moveNeighborhood;
+    private final DeltaEvaluator<Move> deltaEvaluator;
+    private final ToDoubleFunction<? super Vector> decoder;
+    private final ValueComparator valueComparator;
 
     /**
      * Constructs a local search procedure.
      * @param maxIterations the maximum number of iterations to perform to reach
      * a local optimum
-     * @param neighborhood the neighborhood function
+     * @param neighborhood the neighborhood function, whose neighbors can be
+     * generated lazily
      * @param decoder the decoder used to evaluate vectors
      * @param fitnessFunction the fitness function type
      */
-    public FirstIterImpr(int maxIterations, Function<Vector, List<Vector>> neighborhood, Function<? super Vector, Double> decoder, Comparator<? super Vector> fitnessFunction) {
+    public FirstIterImpr(int maxIterations, Function<Vector, ? extends Iterable<Vector>> neighborhood, Function<? super Vector, Double> decoder, Comparator<? super Vector> fitnessFunction) {
+        this(maxIterations, neighborhood, null, decoder::apply, null, ValueComparator.of(fitnessFunction));
+    }
+
+    /**
+     * Constructs a local search procedure which evaluates the vectors by means
+     * of a primitive decoder and compares the objective function values
+     * according to an objective sense, so that no value is boxed.
+     * @param maxIterations the maximum number of iterations to perform to reach
+     * a local optimum
+     * @param neighborhood the neighborhood function, whose neighbors can be
+     * generated lazily
+     * @param decoder the decoder used to evaluate vectors
+     * @param sense the objective sense
+     */
+    public FirstIterImpr(int maxIterations, Function<Vector, ? extends Iterable<Vector>> neighborhood, ToDoubleFunction<? super Vector> decoder, ObjectiveSense sense) {
+        this(maxIterations, neighborhood, null, decoder, null, sense);
+    }
+
+    /**
+     * Constructs a local search procedure which explores the neighborhood by
+     * means of moves, scored by a delta evaluator.
+     * Only the moves which are accepted are applied.
+     * @param <M> the type of the moves
+     * @param maxIterations the maximum number of iterations to perform to reach
+     * a local optimum
+     * @param moveNeighborhood the function from a vector to the moves towards
+     * its neighbors, which can be generated lazily
+     * @param decoder the decoder used to evaluate the starting vector
+     * @param deltaEvaluator the evaluator of the moves
+     * @param fitnessFunction the fitness function type
+     */
+    @SuppressWarnings("unchecked")
+    public <M extends Move> FirstIterImpr(int maxIterations, Function<Vector, ? extends Iterable<M>> moveNeighborhood, Function<? super Vector, Double> decoder, DeltaEvaluator<? super M> deltaEvaluator, Comparator<? super Vector> fitnessFunction) {
+        this(maxIterations, null, moveNeighborhood, decoder::apply, (DeltaEvaluator<Move>) deltaEvaluator, ValueComparator.of(fitnessFunction));
+    }
+
+    /**
+     * Constructs a local search procedure which explores the neighborhood by
+     * means of moves, scored by a delta evaluator, and which compares the
+     * objective function values according to an objective sense, so that no
+     * value is boxed.
+     * Only the moves which are accepted are applied.
+     * @param <M> the type of the moves
+     * @param maxIterations the maximum number of iterations to perform to reach
+     * a local optimum
+     * @param moveNeighborhood the function from a vector to the moves towards
+     * its neighbors, which can be generated lazily
+     * @param decoder the decoder used to evaluate the starting vector
+     * @param deltaEvaluator the evaluator of the moves
+     * @param sense the objective sense
+     */
+    @SuppressWarnings("unchecked")
+    public <M extends Move> FirstIterImpr(int maxIterations, Function<Vector, ? extends Iterable<M>> moveNeighborhood, ToDoubleFunction<? super Vector> decoder, DeltaEvaluator<? super M> deltaEvaluator, ObjectiveSense sense) {
+        this(maxIterations, null, moveNeighborhood, decoder, (DeltaEvaluator<Move>) deltaEvaluator, sense);
+    }
+
+    private FirstIterImpr(int maxIterations, Function<Vector, ? extends Iterable<Vector>> neighborhood, Function<Vector, ? extends Iterable<? extends Move>> moveNeighborhood, ToDoubleFunction<? super Vector> decoder, DeltaEvaluator<Move> deltaEvaluator, ValueComparator valueComparator) {
         if(maxIterations < 1)
             throw new IllegalArgumentException("The maximum number of iterations must be greater than 0");
         this.maxIterations = maxIterations;
         this.neighborhood = neighborhood;
+        this.moveNeighborhood = moveNeighborhood;
+        this.deltaEvaluator = deltaEvaluator;
         this.decoder = decoder;
-        this.fitnessFunction = fitnessFunction;
+        this.valueComparator = valueComparator;
+    }
+
+    /**
+     * Returns a copy of this local search procedure whose decoder calls and
+     * move evaluations are counted and timed as decoder calls while the
+     * metrics are enabled.
+     * @param metrics the metrics of the heuristic which runs the local search
+     * @return the instrumented local search procedure
+     * @see HeuristicMetrics#instrument(java.util.function.ToDoubleFunction) 
+     */
+    public FirstIterImpr instrumentedBy(HeuristicMetrics metrics) {
+        return new FirstIterImpr(maxIterations, neighborhood, moveNeighborhood, metrics.instrument(decoder), deltaEvaluator == null ? null : deltaEvaluator.instrumentedBy(metrics), valueComparator);
     }
     
     /**
      * Explores the neighborhood of a given vector and moves on the first found
      * vector among the neighbors with a value that is better than the current
-     * vector value.
+     * vector value. The neighbors after the first improving one are never
+     * generated, if the neighborhood is lazy.
      * If no neighbor is better than the current vector than this method returns
      * the found local optimum. It repeats this procedure for a maximum number
      * of iterations, specified during the construction of this object.
@@ -49,14 +129,16 @@ public final class FirstIterImpr implements Function<Vector, Vector> {
     public Vector apply(Vector t) {
         boolean improve = true;
         Vector cur = t;
-        cur.setValue(decoder.apply(cur));
+        cur.setValue(decoder.applyAsDouble(cur));
+        if(moveNeighborhood != null)
+            return applyMoves(cur);
         int iterations = 0;
         while(improve && iterations < maxIterations) {
-            List<Vector> neighbors = neighborhood.apply(cur);
+            Iterable<Vector> neighbors = neighborhood.apply(cur);
             improve = false;
             for(Vector neighbor: neighbors) {
-                neighbor.setValue(decoder.apply(neighbor));
-                if(fitnessFunction.compare(neighbor, cur) < 0) {
+                neighbor.setValue(decoder.applyAsDouble(neighbor));
+                if(valueComparator.compare(neighbor.getValue(), cur.getValue()) < 0) {
                     cur = neighbor;
                     improve = true;
                     break;
@@ -66,4 +148,23 @@ public final class FirstIterImpr implements Function<Vector, Vector> {
         }
         return cur;
     }
+
+    private Vector applyMoves(Vector cur) {
+        boolean improve = true;
+        int iterations = 0;
+        while(improve && iterations < maxIterations) {
+            Iterable<? extends Move> moves = moveNeighborhood.apply(cur);
+            improve = false;
+            for(Move move: moves) {
+                double value = cur.getValue()+deltaEvaluator.delta(cur, move);
+                if(valueComparator.compare(value, cur.getValue()) < 0) {
+                    cur = move.applyTo(cur).setValue(value);
+                    improve = true;
+                    break;
+                }
+            }
+            iterations++;
+        }
+        return cur;
+    }
 }
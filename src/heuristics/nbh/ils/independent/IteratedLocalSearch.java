@@ -1,10 +1,15 @@
 package heuristics.nbh.ils.independent;
 
+import heuristics.Checkpoint;
 import heuristics.Heuristic;
+import heuristics.HeuristicEvents;
+import heuristics.ValueComparator;
 import heuristics.Vector;
-import java.util.Comparator;
+import heuristics.nbh.ils.client.BestIterImpr;
+import heuristics.nbh.ils.client.FirstIterImpr;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 
 /**
  *
@@ -12,30 +17,43 @@ import java.util.function.Predicate;
  */
 public class IteratedLocalSearch extends Heuristic {
     private Vector curVector;
-    private final Function<? super Vector, Double> decoder;
-    private final Comparator<? super Vector> fitnessFunction;
+    private final ToDoubleFunction<? super Vector> decoder;
+    private final ValueComparator valueComparator;
     private final Predicate<? super IteratedLocalSearch> stoppingCriterion;
     private final Function<Vector, Vector> localSearch, perturbation;
     
     /**
      * Constructs an IteratedLocalSearch object.
+     * The decoder calls of the local search procedure are counted by the
+     * metrics of the heuristic if it is a <i>FirstIterImpr</i> or a
+     * <i>BestIterImpr</i>, which is instrumented; the decoder calls of
+     * another local search procedure are not counted, and their time is
+     * counted as framework time.
      * @param localSearch the local search procedure
      * @param perturbation the perturbation procedure
      * @param decoder the decoder used to evaluate
-     * @param fitnessFunction MIN or MAX problem
+     * @param valueComparator MIN or MAX problem
      * @param feasibleSolution the starting feasible solution
      * @param stoppingCriterion the predicate that returns true if the stopping
      * criterion has been met
      */
-    IteratedLocalSearch(Function<Vector, Vector> localSearch, Function<Vector, Vector> perturbation, Function<? super Vector, Double> decoder, Comparator<? super Vector> fitnessFunction, Vector feasibleSolution, Predicate<? super IteratedLocalSearch> stoppingCriterion) {
-        this.decoder = decoder;
-        this.localSearch = localSearch;
+    IteratedLocalSearch(Function<Vector, Vector> localSearch, Function<Vector, Vector> perturbation, ToDoubleFunction<? super Vector> decoder, ValueComparator valueComparator, Vector feasibleSolution, Predicate<? super IteratedLocalSearch> stoppingCriterion) {
+        this.decoder = super.getMetrics().instrument(decoder);
+        this.localSearch = instrument(localSearch);
         this.perturbation = perturbation;
-        this.fitnessFunction = fitnessFunction;
+        this.valueComparator = valueComparator;
         this.stoppingCriterion = stoppingCriterion;
         curVector = new Vector(feasibleSolution);
-        curVector.setValue(decoder.apply(curVector));
-        super.updateBest(new Vector(curVector));
+        curVector.setValue(this.decoder.applyAsDouble(curVector));
+        super.updateBest(curVector);
+    }
+
+    private Function<Vector, Vector> instrument(Function<Vector, Vector> localSearch) {
+        if(localSearch instanceof FirstIterImpr)
+            return ((FirstIterImpr) localSearch).instrumentedBy(super.getMetrics());
+        if(localSearch instanceof BestIterImpr)
+            return ((BestIterImpr) localSearch).instrumentedBy(super.getMetrics());
+        return localSearch;
     }
 
     /**
@@ -47,14 +65,30 @@ public class IteratedLocalSearch extends Heuristic {
         if(stoppingCriterion.test(this))
             return false;
         super.increaseIterations();
+        HeuristicEvents.Evaluation evaluation = HeuristicEvents.Evaluation.begin();
         Vector bestLocal = localSearch.apply(curVector);
-        bestLocal.setValue(decoder.apply(bestLocal));
-        if(fitnessFunction.compare(bestLocal, super.getBestVector()) < 0) {
-            super.updateBest(new Vector(bestLocal));
+        bestLocal.setValue(decoder.applyAsDouble(bestLocal));
+        evaluation.end(this, "local search");
+        if(valueComparator.compare(bestLocal.getValue(), super.getBestValue()) < 0) {
+            super.updateBest(bestLocal);
         }
         curVector = perturbation.apply(bestLocal);
-        curVector.setValue(decoder.apply(curVector));
+        curVector.setValue(decoder.applyAsDouble(curVector));
         return true;
     }
-    
+
+    @Override
+    public double getCurrentValue() {
+        return curVector.getValue();
+    }
+
+    @Override
+    protected void writeState(Checkpoint.Writer out) {
+        out.putVector(curVector);
+    }
+
+    @Override
+    protected void readState(Checkpoint.Reader in) {
+        curVector = in.getVector();
+    }
 }
@@ -1,10 +1,14 @@
 package heuristics.nbh.ils.independent;
 
 import heuristics.Batch;
+import heuristics.ObjectiveSense;
+import heuristics.ValueComparator;
 import heuristics.Vector;
 import java.util.Comparator;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 
 /**
  *
@@ -24,7 +28,9 @@ public class IteratedLocalSearchBatch extends Batch {
      * where <tt>seed</tt> is given and <tt>i</tt> is the index of the heuristic
      * in the internal sorting.
      * @param numThreads the number of independent iterated local search
-     * @param localSearch the local search procedure
+     * @param localSearch the local search procedure, whose decoder calls are
+     * counted by the metrics of each heuristic if it is a <i>FirstIterImpr</i>
+     * or a <i>BestIterImpr</i>
      * @param perturbations the perturbation procedures
      * @param decoder the decoder used to evaluate
      * @param fitnessFunction MIN or MAX problem
@@ -33,6 +39,34 @@ public class IteratedLocalSearchBatch extends Batch {
      * criterion has been met
      */
     public IteratedLocalSearchBatch (int numThreads, Function<Vector, Vector> localSearch, Function<Vector, Vector>[] perturbations, Function<? super Vector, Double> decoder, Comparator<? super Vector> fitnessFunction, Vector[] feasibleSolutions, Predicate<? super IteratedLocalSearch> stoppingCriterion) {
+        this(numThreads, perturbations, feasibleSolutions, (perturbation, feasibleSolution) -> new IteratedLocalSearch(localSearch, perturbation, decoder::apply, ValueComparator.of(fitnessFunction), feasibleSolution, stoppingCriterion), fitnessFunction);
+    }
+
+    /**
+     * Constructs a multi-thread iterated local search algorithm composed by
+     * the specified number of threads, which evaluate the vectors by means of
+     * a primitive decoder and compare the objective function values according
+     * to an objective sense, so that no value is boxed.
+     * The local search procedure, the decoder and the stopping criterion
+     * objects are shared by all the threads. It is your own responsibility to
+     * implement synchronized methods or methods which don't arise race
+     * conditions.
+     * @param numThreads the number of independent iterated local search
+     * @param localSearch the local search procedure, whose decoder calls are
+     * counted by the metrics of each heuristic if it is a <i>FirstIterImpr</i>
+     * or a <i>BestIterImpr</i>
+     * @param perturbations the perturbation procedures
+     * @param decoder the decoder used to evaluate
+     * @param sense MINIMIZE or MAXIMIZE problem
+     * @param feasibleSolutions the starting feasible solutions
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     */
+    public IteratedLocalSearchBatch (int numThreads, Function<Vector, Vector> localSearch, Function<Vector, Vector>[] perturbations, ToDoubleFunction<? super Vector> decoder, ObjectiveSense sense, Vector[] feasibleSolutions, Predicate<? super IteratedLocalSearch> stoppingCriterion) {
+        this(numThreads, perturbations, feasibleSolutions, (perturbation, feasibleSolution) -> new IteratedLocalSearch(localSearch, perturbation, decoder, sense, feasibleSolution, stoppingCriterion), sense.getFitnessFunction());
+    }
+
+    private IteratedLocalSearchBatch (int numThreads, Function<Vector, Vector>[] perturbations, Vector[] feasibleSolutions, BiFunction<Function<Vector, Vector>, Vector, IteratedLocalSearch> iteratedLocalSearch, Comparator<? super Vector> fitnessFunction) {
         if(numThreads < 1)
             throw new IllegalArgumentException("There must be at least one thread");
         if(numThreads != feasibleSolutions.length)
@@ -41,7 +75,7 @@ public class IteratedLocalSearchBatch extends Batch {
             throw new IllegalArgumentException("The number of threads and the number of perturbation function must be the same");
         IteratedLocalSearch[] iteratedLocalSearches = new IteratedLocalSearch[numThreads];
         for(int i=0; i<iteratedLocalSearches.length; i++)
-            iteratedLocalSearches[i] = new IteratedLocalSearch(localSearch, perturbations[i], decoder, fitnessFunction, feasibleSolutions[i], stoppingCriterion);
+            iteratedLocalSearches[i] = iteratedLocalSearch.apply(perturbations[i], feasibleSolutions[i]);
         super.setVectorComparator(fitnessFunction);
         super.setHeuristics(iteratedLocalSearches);
     }    
@@ -0,0 +1,154 @@
+package heuristics.nbh.sa;
+
+import heuristics.ValueComparator;
+import heuristics.Vector;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The exchanges of the current vectors between the replicas of a parallel
+ * tempering, i.e., simulated annealing which hold fixed temperatures on a
+ * geometric ladder, from the coldest replica to the hottest one.
+ * Each replica but the coldest one publishes its current vector in its slot,
+ * and it replaces the published vector by a compare-and-set whenever it
+ * moves. Every <i>interval</i> iterations, a replica takes the vector of its
+ * hotter neighbour out of its slot, decides the swap by the Metropolis test
+ * of replica exchange, and puts back either the same vector or, if the swap
+ * is accepted, its own vector, which the hotter neighbour adopts as soon as
+ * it finds it in its slot. Since the hotter neighbour can't move while its
+ * vector is taken, the swap is decided on the current vectors of both
+ * replicas.
+ * No replica waits for the iterations of its neighbours, and a swap doesn't
+ * need the hotter neighbour to be running, e.g., when the replicas share a
+ * few carrier threads: a replica whose vector is taken waits only for the
+ * decision of the taker, which is a single test. Since the swaps aren't
+ * synchronized with the iterations, they depend on the scheduling of the
+ * replicas, and a run isn't reproducible from its seed.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ * @see SimulatedAnnealingBatch
+ */
+final class ReplicaExchange {
+    /**
+     * The distance between the slots of two replicas, so that they don't
+     * share a cache line.
+     */
+    private static final int PADDING = 16;
+
+    private final float[] temperatures;
+    private final int interval;
+    private final ValueComparator valueComparator;
+    /**
+     * The vectors published by the replicas, or null while they are taken.
+     */
+    private final AtomicReferenceArray<Vector> offers;
+    private final LongAdder attempts = new LongAdder(), acceptances = new LongAdder();
+
+    ReplicaExchange(float[] temperatures, int interval, ValueComparator valueComparator) {
+        if(interval < 1)
+            throw new IllegalArgumentException("The exchange interval must be greater than 0");
+        this.temperatures = temperatures;
+        this.interval = interval;
+        this.valueComparator = valueComparator;
+        offers = new AtomicReferenceArray<>(temperatures.length*PADDING);
+    }
+
+    /**
+     * Returns the geometric ladder of temperatures from <i>tMin</i> to
+     * <i>tMax</i>, with the specified number of steps.
+     */
+    static float[] ladder(int replicas, float tMin, float tMax) {
+        if(replicas < 1)
+            throw new IllegalArgumentException("There must be at least one thread");
+        if(!(tMin > 0) || !(tMax >= tMin))
+            throw new IllegalArgumentException("The temperatures must be positive and tMax can't be lower than tMin");
+        float[] temperatures = new float[replicas];
+        for(int i=0; i<replicas; i++)
+            temperatures[i] = replicas == 1 ? tMin : (float)(tMin*Math.pow((double)tMax/tMin, (double)i/(replicas-1)));
+        return temperatures;
+    }
+
+    float getTemperature(int replica) {
+        return temperatures[replica];
+    }
+
+    long getAttempts() {
+        return attempts.sum();
+    }
+
+    long getAcceptances() {
+        return acceptances.sum();
+    }
+
+    /**
+     * Publishes the current vector of a replica, i.e., when the replica
+     * starts or is restored.
+     */
+    void join(int replica, Vector current) {
+        if(replica > 0)
+            offers.set(replica*PADDING, current);
+    }
+
+    /**
+     * Returns the current vector of a replica at the start of an iteration,
+     * i.e., the vector handed by its colder neighbour, if a swap has been
+     * accepted, or its current vector otherwise. Every <i>interval</i>
+     * iterations, the replica also attempts to swap its current vector with
+     * its hotter neighbour.
+     */
+    Vector exchange(int replica, Vector current, int iteration, Random random) {
+        current = resolve(replica, current);
+        if(iteration%interval != 0 || replica+1 == temperatures.length)
+            return current;
+        int hotSlot = (replica+1)*PADDING;
+        Vector hot = offers.get(hotSlot);
+        if(hot == null || !offers.compareAndSet(hotSlot, hot, null))
+            return current;
+        if(replica > 0 && !offers.compareAndSet(replica*PADDING, current, null)) {
+            offers.set(hotSlot, hot);
+            return resolve(replica, current);
+        }
+        attempts.increment();
+        if(valueComparator.compare(hot.getValue(), current.getValue()) <= 0
+                || random.nextDouble() < Math.exp(-Math.abs(hot.getValue()-current.getValue())*(1/temperatures[replica]-1/temperatures[replica+1]))) {
+            acceptances.increment();
+            offers.set(hotSlot, current);
+            current = hot;
+        } else {
+            offers.set(hotSlot, hot);
+        }
+        if(replica > 0)
+            offers.set(replica*PADDING, current);
+        return current;
+    }
+
+    /**
+     * Returns the vector which a replica continues with after a move from
+     * <i>current</i> to <i>next</i>, i.e., <i>next</i>, which is published
+     * in place of <i>current</i>, or the vector handed by its colder
+     * neighbour, if a swap has been accepted meanwhile, so that the move is
+     * discarded.
+     */
+    Vector replace(int replica, Vector current, Vector next) {
+        while(replica > 0 && !offers.compareAndSet(replica*PADDING, current, next)) {
+            Vector vector = resolve(replica, current);
+            if(vector != current)
+                return vector;
+        }
+        return next;
+    }
+
+    /**
+     * Returns the vector published in the slot of a replica, i.e., its
+     * current vector or the vector handed by its colder neighbour, after
+     * waiting for the decision on it, if it has been taken.
+     */
+    private Vector resolve(int replica, Vector current) {
+        if(replica == 0)
+            return current;
+        Vector vector;
+        while((vector = offers.get(replica*PADDING)) == null)
+            Thread.yield();
+        return vector;
+    }
+}
@@ -1,36 +1,71 @@
 package heuristics.nbh.sa;
 
 import heuristics.Vector;
+import heuristics.Checkpoint;
 import heuristics.Heuristic;
-import java.util.Comparator;
+import heuristics.HeuristicEvents;
+import heuristics.ValueComparator;
+import heuristics.nbh.DeltaEvaluator;
+import heuristics.nbh.Move;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
 
 /**
- *
+ * A simulated annealing, which moves from its current vector to a random
+ * neighbor if it is accepted by the Metropolis test.
+ * It can also draw many candidate neighbors of the current vector at once
+ * and evaluate them in parallel (see <i>setCandidates</i>), so that a single
+ * chain uses many cores.
  * @author Mirko Alicastro {@link https://mirkoalicastro.com}
  */
 public class SimulatedAnnealing extends Heuristic {
     private Vector curVector;
-    private final Function<? super Vector, Double> decoder;
-    private final Comparator<? super Vector> fitnessFunction;
+    private final ToDoubleFunction<? super Vector> decoder;
+    private final ValueComparator valueComparator;
     private final Predicate<? super SimulatedAnnealing> stoppingCriterion;
     private final Function<Vector, Vector> randomFeasibleNeighbor;
-    private final Random rand;
-    
+    private final Function<Vector, ? extends Move> randomFeasibleMove;
+    private final DeltaEvaluator<Move> deltaEvaluator;
+    private Random rand;
+    private ReplicaExchange exchange;
+    private int replica;
+    private int candidates = 1;
+    private Vector[] neighbors;
+    private Move[] moves;
+    private double[] values;
+
     private float temperature;
-    private final float t0, tDelta;    
+    private final float t0, tDelta;
+
+    SimulatedAnnealing(float t0, float tDelta, ToDoubleFunction<? super Vector> decoder, ValueComparator valueComparator, Vector feasibleSolution, Function<Vector, Vector> randomFeasibleNeighbor, Predicate<? super SimulatedAnnealing> stoppingCriterion, Random random) {
+        this(t0, tDelta, decoder, valueComparator, feasibleSolution, randomFeasibleNeighbor, null, null, stoppingCriterion, random);
+    }
 
-    SimulatedAnnealing(float t0, float tDelta, Function<? super Vector, Double> decoder, Comparator<? super Vector> fitnessFunction, Vector feasibleSolution, Function<Vector, Vector> randomFeasibleNeighbor, Predicate<? super SimulatedAnnealing> stoppingCriterion, Random random) {
+    /**
+     * Constructs a SimulatedAnnealing object which moves through the
+     * neighbors by means of moves, scored by a delta evaluator.
+     * Only the accepted moves are applied to the current vector.
+     */
+    @SuppressWarnings("unchecked")
+    <M extends Move> SimulatedAnnealing(float t0, float tDelta, ToDoubleFunction<? super Vector> decoder, DeltaEvaluator<? super M> deltaEvaluator, ValueComparator valueComparator, Vector feasibleSolution, Function<Vector, M> randomFeasibleMove, Predicate<? super SimulatedAnnealing> stoppingCriterion, Random random) {
+        this(t0, tDelta, decoder, valueComparator, feasibleSolution, null, randomFeasibleMove, (DeltaEvaluator<Move>) deltaEvaluator, stoppingCriterion, random);
+    }
+
+    private SimulatedAnnealing(float t0, float tDelta, ToDoubleFunction<? super Vector> decoder, ValueComparator valueComparator, Vector feasibleSolution, Function<Vector, Vector> randomFeasibleNeighbor, Function<Vector, ? extends Move> randomFeasibleMove, DeltaEvaluator<Move> deltaEvaluator, Predicate<? super SimulatedAnnealing> stoppingCriterion, Random random) {
         this.t0 = t0;
         this.tDelta = tDelta;
-        this.decoder = decoder;
-        this.fitnessFunction = fitnessFunction;
+        this.decoder = super.getMetrics().instrument(decoder);
+        this.valueComparator = valueComparator;
         this.randomFeasibleNeighbor = randomFeasibleNeighbor;
+        this.randomFeasibleMove = randomFeasibleMove;
+        this.deltaEvaluator = deltaEvaluator == null ? null : deltaEvaluator.instrumentedBy(super.getMetrics());
         this.stoppingCriterion = stoppingCriterion;
         Vector bestVector = new Vector(feasibleSolution);
-        bestVector.setValue(decoder.apply(bestVector));
+        bestVector.setValue(this.decoder.applyAsDouble(bestVector));
         curVector = bestVector;
         temperature = t0;
         if(random == null) {
@@ -40,7 +75,7 @@ public class SimulatedAnnealing extends Heuristic {
         this.rand = random;
         super.updateBest(bestVector);
     }
-    
+
     /**
      * Processes a single iteration of the simulated annealing.
      * @return true if the stopping criterion hadn't been met, false otherwise
@@ -50,26 +85,226 @@ public class SimulatedAnnealing extends Heuristic {
         if(stoppingCriterion.test(this))
             return false;
         super.increaseIterations();
-        Vector nextVector = randomFeasibleNeighbor.apply(curVector);
-        if(nextVector == null)
-            return false;
-        nextVector.setValue(decoder.apply(nextVector));
-        if(fitnessFunction.compare(nextVector, super.getBestVector()) < 0) {
-            curVector = nextVector;
-            super.updateBest(curVector);
+        if(exchange != null)
+            exchange();
+        if(candidates > 1)
+            return speculate();
+        return step();
+    }
+
+    /**
+     * Sets the number of candidate neighbors drawn by each iteration.
+     * When <i>candidates</i> is greater than 1, an iteration draws and
+     * evaluates the specified number of neighbors of the current vector in
+     * parallel, on the common fork-join pool. Then it tests them in order, as
+     * many consecutive iterations, until the first one which is accepted:
+     * it becomes the current vector and the remaining ones are discarded.
+     * Each test consumes the random number generator and lowers the
+     * temperature as an iteration of the sequential simulated annealing
+     * does, so that the same candidates lead to the same moves, iterations
+     * and temperatures. The neighborhood function, or the move function and
+     * the delta evaluator, are called by many threads at once.
+     * The change takes effect with the next iteration.
+     * @param candidates the number of candidate neighbors per iteration, or
+     * 1 to draw a single neighbor (the default)
+     */
+    public synchronized void setCandidates(int candidates) {
+        if(candidates < 1)
+            throw new IllegalArgumentException("There must be at least one candidate");
+        this.candidates = candidates;
+        if(candidates == 1) {
+            neighbors = null;
+            moves = null;
+            values = null;
         } else {
-            double probability;
-            if(fitnessFunction.compare(nextVector, curVector) < 0)
-                probability = 1;
+            if(randomFeasibleMove != null)
+                moves = new Move[candidates];
             else
-                probability = Math.pow(Math.E, -Math.abs(nextVector.getValue()-curVector.getValue())/temperature);
-            if(rand.nextDouble() < probability)
-                curVector = nextVector;
+                neighbors = new Vector[candidates];
+            values = new double[candidates];
+        }
+    }
+
+    /**
+     * Returns the number of candidate neighbors drawn by each iteration.
+     * @return the number of candidates
+     * @see #setCandidates(int) 
+     */
+    public int getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * Moves to a random neighbor of the current vector, if it is accepted.
+     * @return false if there is no neighbor, true otherwise
+     */
+    private boolean step() {
+        if(randomFeasibleMove != null) {
+            Move move = randomFeasibleMove.apply(curVector);
+            if(move == null)
+                return false;
+            double nextValue = curVector.getValue()+deltaEvaluator.delta(curVector, move);
+            if(accepts(nextValue))
+                moveTo(move.applyTo(curVector).setValue(nextValue));
+        } else {
+            Vector nextVector = randomFeasibleNeighbor.apply(curVector);
+            if(nextVector == null)
+                return false;
+            nextVector.setValue(decoder.applyAsDouble(nextVector));
+            if(accepts(nextVector.getValue()))
+                moveTo(nextVector);
         }
         temperature = decreaseTemperature(temperature);
         return true;
     }
 
+    /**
+     * Tests the candidate neighbors of the current vector in order, each one
+     * as an iteration, until the first one which is accepted. If the current
+     * vector is swapped with a neighbouring replica, the candidates are
+     * discarded and the iteration continues as a sequential one.
+     * @return false if a candidate is missing, true otherwise
+     */
+    private boolean speculate() {
+        Vector current = curVector;
+        evaluate(current);
+        boolean result = true;
+        for(int i=0; ; i++) {
+            if(moves == null ? neighbors[i] == null : moves[i] == null) {
+                result = false;
+                break;
+            }
+            boolean accepted = accepts(values[i]);
+            if(accepted)
+                moveTo(moves == null ? neighbors[i] : moves[i].applyTo(current).setValue(values[i]));
+            temperature = decreaseTemperature(temperature);
+            if(accepted || i+1 == candidates || stoppingCriterion.test(this))
+                break;
+            super.increaseIterations();
+            if(exchange != null) {
+                exchange();
+                if(curVector != current) {
+                    result = step();
+                    break;
+                }
+            }
+        }
+        if(neighbors != null)
+            Arrays.fill(neighbors, null);
+        else
+            Arrays.fill(moves, null);
+        return result;
+    }
+
+    /**
+     * Draws and evaluates the candidate neighbors of a vector in parallel.
+     */
+    private void evaluate(Vector current) {
+        HeuristicEvents.Evaluation event = HeuristicEvents.Evaluation.begin();
+        IntStream.range(0, candidates).parallel().forEach(i -> {
+            if(randomFeasibleMove != null) {
+                Move move = randomFeasibleMove.apply(current);
+                if(move != null)
+                    values[i] = current.getValue()+deltaEvaluator.delta(current, move);
+                moves[i] = move;
+            } else {
+                Vector neighbor = randomFeasibleNeighbor.apply(current);
+                if(neighbor != null)
+                    neighbor.setValue(values[i] = decoder.applyAsDouble(neighbor));
+                neighbors[i] = neighbor;
+            }
+        });
+        event.end(this, "candidates");
+    }
+
+    /**
+     * Returns true if a neighbor must become the current vector, i.e., if it
+     * improves the incumbent vector or it passes the Metropolis test.
+     */
+    private boolean accepts(double next) {
+        return valueComparator.compare(next, super.getBestValue()) < 0 || metropolis(next);
+    }
+
+    /**
+     * Makes this simulated annealing a replica of a parallel tempering, which
+     * exchanges its current vector with its neighbours on the temperature
+     * ladder, at the fixed temperature of its step.
+     * @param exchange the exchanges between the replicas
+     * @param replica the index of this replica on the ladder
+     */
+    void join(ReplicaExchange exchange, int replica) {
+        this.exchange = exchange;
+        this.replica = replica;
+        temperature = exchange.getTemperature(replica);
+        exchange.join(replica, curVector);
+    }
+
+    /**
+     * Adopts the vector handed by the colder neighbour, if any, and
+     * performs the periodic exchanges with the neighbours.
+     */
+    private void exchange() {
+        Vector vector = exchange.exchange(replica, curVector, super.getIterations(), rand);
+        if(vector != curVector) {
+            curVector = vector;
+            if(valueComparator.compare(curVector.getValue(), super.getBestValue()) < 0)
+                super.updateBest(curVector);
+        }
+    }
+
+    /**
+     * Moves to an accepted neighbor, which becomes the incumbent vector if it
+     * improves it. A replica may instead continue with the vector handed
+     * by its colder neighbour, if a swap has just been accepted, so that the
+     * move is discarded.
+     */
+    private void moveTo(Vector next) {
+        curVector = exchange == null ? next : exchange.replace(replica, curVector, next);
+        if(valueComparator.compare(curVector.getValue(), super.getBestValue()) < 0)
+            super.updateBest(curVector);
+    }
+
+    /**
+     * Returns true if a neighbor which doesn't improve the incumbent vector
+     * must become the current vector, according to the Metropolis test at the
+     * current temperature.
+     */
+    private boolean metropolis(double next) {
+        double probability;
+        if(valueComparator.compare(next, curVector.getValue()) < 0)
+            probability = 1;
+        else
+            probability = Math.pow(Math.E, -Math.abs(next-curVector.getValue())/temperature);
+        return rand.nextDouble() < probability;
+    }
+
+    /**
+     * Returns the current temperature.
+     * @return the current temperature
+     */
+    public float getTemperature() {
+        return temperature;
+    }
+
+    @Override
+    public double getCurrentValue() {
+        return curVector.getValue();
+    }
+
+    @Override
+    protected void writeState(Checkpoint.Writer out) {
+        out.putVector(curVector).putFloat(temperature).putRandom(rand);
+    }
+
+    @Override
+    protected void readState(Checkpoint.Reader in) {
+        curVector = in.getVector();
+        temperature = in.getFloat();
+        rand = in.getRandom();
+        if(exchange != null)
+            exchange.join(replica, curVector);
+    }
+
     private float decreaseTemperature(float t) {
         float tmp = t - tDelta;
         if(tmp < 0)
@@ -1,17 +1,28 @@
 package heuristics.nbh.sa;
 
 import heuristics.Batch;
+import heuristics.Heuristic;
+import heuristics.ObjectiveSense;
+import heuristics.ValueComparator;
 import java.util.Random;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 import heuristics.Vector;
+import heuristics.nbh.DeltaEvaluator;
+import heuristics.nbh.Move;
 import java.util.Comparator;
 
 /**
- *
+ * A multi-thread simulated annealing, whose simulated annealing either cool
+ * down independently or, in the replica exchange mode, hold fixed
+ * temperatures on a geometric ladder and periodically swap their current
+ * vectors with their neighbours on the ladder (parallel tempering).
  * @author Mirko Alicastro {@link https://mirkoalicastro.com}
  */
 public class SimulatedAnnealingBatch extends Batch {
+    private final ReplicaExchange exchange;
 
     /**
      * Constructs a multi-thread simulated annealing algorithm composed by the
@@ -40,17 +51,248 @@ public class SimulatedAnnealingBatch extends Batch {
      * @param seed
      */
     public SimulatedAnnealingBatch (int numThreads, float t0, float tDelta, Function<? super Vector, Double> decoder, Comparator<? super Vector> fitnessFunction, Vector[] feasibleSolutions, Function<Vector, Vector> randomFeasibleNeighbor, Predicate<? super SimulatedAnnealing> stoppingCriterion, long seed) {
+        this(numThreads, feasibleSolutions, seed, (feasibleSolution, random) -> new SimulatedAnnealing(t0, tDelta, decoder::apply, ValueComparator.of(fitnessFunction), feasibleSolution, randomFeasibleNeighbor, stoppingCriterion, random), fitnessFunction);
+    }
+
+    /**
+     * Constructs a multi-thread simulated annealing algorithm composed by the
+     * specified number of simulated annealing, which move through the
+     * neighbors by means of moves scored by a delta evaluator.
+     * Only the accepted moves are applied to the current vectors.
+     * The move function, the delta evaluator, the vector comparator and the
+     * stopping criterion objects are shared by all the threads. It is your own
+     * responsibility to implement synchronized methods or methods which don't
+     * arise race conditions.
+     * This multi-threading manager creates the specified number of heuristic
+     * objects using a different seed for each of it, i.e., using <tt>seed+i</tt>
+     * where <tt>seed</tt> is given and <tt>i</tt> is the index of the heuristic
+     * in the internal sorting.
+     * @param <M> the type of the moves
+     * @param numThreads the number of independent simulated annealing
+     * @param t0 the initial temperature
+     * @param tDelta the decreasing amount for the temperature at each step
+     * @param decoder the decoder used to evaluate the starting solutions
+     * @param deltaEvaluator the evaluator of the moves
+     * @param fitnessFunction MIN or MAX problem
+     * @param feasibleSolutions the starting feasible solutions for each
+     * simulated annealing
+     * @param randomFeasibleMove the function from (un)feasible solution to a
+     * random move towards one of its neighbors
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     * @param seed
+     */
+    public <M extends Move> SimulatedAnnealingBatch (int numThreads, float t0, float tDelta, Function<? super Vector, Double> decoder, DeltaEvaluator<? super M> deltaEvaluator, Comparator<? super Vector> fitnessFunction, Vector[] feasibleSolutions, Function<Vector, M> randomFeasibleMove, Predicate<? super SimulatedAnnealing> stoppingCriterion, long seed) {
+        this(numThreads, feasibleSolutions, seed, (feasibleSolution, random) -> new SimulatedAnnealing(t0, tDelta, decoder::apply, deltaEvaluator, ValueComparator.of(fitnessFunction), feasibleSolution, randomFeasibleMove, stoppingCriterion, random), fitnessFunction);
+    }
+
+    /**
+     * Constructs a multi-thread simulated annealing algorithm composed by the
+     * specified number of simulated annealing, which evaluate the vectors by
+     * means of a primitive decoder and compare the objective function values
+     * according to an objective sense, so that no value is boxed.
+     * The neighborhood function, the decoder and the stopping criterion
+     * objects are shared by all the threads. It is your own responsibility to
+     * implement synchronized methods or methods which don't arise race
+     * conditions.
+     * This multi-threading manager creates the specified number of heuristic
+     * objects using a different seed for each of it, i.e., using <tt>seed+i</tt>
+     * where <tt>seed</tt> is given and <tt>i</tt> is the index of the heuristic
+     * in the internal sorting.
+     * @param numThreads the number of independent simulated annealing
+     * @param t0 the initial temperature
+     * @param tDelta the decreasing amount for the temperature at each step
+     * @param decoder the decoder used by all simulated annealing
+     * @param sense MINIMIZE or MAXIMIZE problem
+     * @param feasibleSolutions the starting feasible solutions for each
+     * simulated annealing
+     * @param randomFeasibleNeighbor the function from (un)feasible solution to its
+     * neighbors
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     * @param seed
+     */
+    public SimulatedAnnealingBatch (int numThreads, float t0, float tDelta, ToDoubleFunction<? super Vector> decoder, ObjectiveSense sense, Vector[] feasibleSolutions, Function<Vector, Vector> randomFeasibleNeighbor, Predicate<? super SimulatedAnnealing> stoppingCriterion, long seed) {
+        this(numThreads, feasibleSolutions, seed, (feasibleSolution, random) -> new SimulatedAnnealing(t0, tDelta, decoder, sense, feasibleSolution, randomFeasibleNeighbor, stoppingCriterion, random), sense.getFitnessFunction());
+    }
+
+    /**
+     * Constructs a multi-thread simulated annealing algorithm composed by the
+     * specified number of simulated annealing, which move through the
+     * neighbors by means of moves scored by a delta evaluator, evaluate the
+     * starting solutions by means of a primitive decoder and compare the
+     * objective function values according to an objective sense, so that no
+     * value is boxed.
+     * The move function, the delta evaluator, the decoder and the stopping
+     * criterion objects are shared by all the threads. It is your own
+     * responsibility to implement synchronized methods or methods which don't
+     * arise race conditions.
+     * This multi-threading manager creates the specified number of heuristic
+     * objects using a different seed for each of it, i.e., using <tt>seed+i</tt>
+     * where <tt>seed</tt> is given and <tt>i</tt> is the index of the heuristic
+     * in the internal sorting.
+     * @param <M> the type of the moves
+     * @param numThreads the number of independent simulated annealing
+     * @param t0 the initial temperature
+     * @param tDelta the decreasing amount for the temperature at each step
+     * @param decoder the decoder used to evaluate the starting solutions
+     * @param deltaEvaluator the evaluator of the moves
+     * @param sense MINIMIZE or MAXIMIZE problem
+     * @param feasibleSolutions the starting feasible solutions for each
+     * simulated annealing
+     * @param randomFeasibleMove the function from (un)feasible solution to a
+     * random move towards one of its neighbors
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     * @param seed
+     */
+    public <M extends Move> SimulatedAnnealingBatch (int numThreads, float t0, float tDelta, ToDoubleFunction<? super Vector> decoder, DeltaEvaluator<? super M> deltaEvaluator, ObjectiveSense sense, Vector[] feasibleSolutions, Function<Vector, M> randomFeasibleMove, Predicate<? super SimulatedAnnealing> stoppingCriterion, long seed) {
+        this(numThreads, feasibleSolutions, seed, (feasibleSolution, random) -> new SimulatedAnnealing(t0, tDelta, decoder, deltaEvaluator, sense, feasibleSolution, randomFeasibleMove, stoppingCriterion, random), sense.getFitnessFunction());
+    }
+
+    /**
+     * Constructs a parallel tempering composed by the specified number of
+     * simulated annealing, i.e., replicas, which evaluate the vectors by
+     * means of a primitive decoder and compare the objective function values
+     * according to an objective sense.
+     * The replicas don't cool down: the <i>i</i>-th replica holds the
+     * <i>i</i>-th temperature of the geometric ladder from <i>tMin</i> to
+     * <i>tMax</i>. Every <i>exchangeInterval</i> iterations, each replica
+     * attempts to swap its current vector with its hotter neighbour, which
+     * is accepted by the Metropolis test of replica exchange. The swaps
+     * don't make the replicas wait for each other, so that they depend on
+     * the scheduling of the threads.
+     * The neighborhood function, the decoder and the stopping criterion
+     * objects are shared by all the threads. It is your own responsibility to
+     * implement synchronized methods or methods which don't arise race
+     * conditions.
+     * This multi-threading manager creates the specified number of heuristic
+     * objects using a different seed for each of it, i.e., using <tt>seed+i</tt>
+     * where <tt>seed</tt> is given and <tt>i</tt> is the index of the heuristic
+     * in the internal sorting, which is its index on the ladder.
+     * @param numThreads the number of replicas
+     * @param tMin the temperature of the coldest replica
+     * @param tMax the temperature of the hottest replica
+     * @param exchangeInterval the number of iterations between two swap
+     * attempts of a replica
+     * @param decoder the decoder used by all simulated annealing
+     * @param sense MINIMIZE or MAXIMIZE problem
+     * @param feasibleSolutions the starting feasible solutions for each
+     * replica
+     * @param randomFeasibleNeighbor the function from (un)feasible solution to its
+     * neighbors
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     * @param seed
+     */
+    public SimulatedAnnealingBatch (int numThreads, float tMin, float tMax, int exchangeInterval, ToDoubleFunction<? super Vector> decoder, ObjectiveSense sense, Vector[] feasibleSolutions, Function<Vector, Vector> randomFeasibleNeighbor, Predicate<? super SimulatedAnnealing> stoppingCriterion, long seed) {
+        this(numThreads, feasibleSolutions, seed, new ReplicaExchange(ReplicaExchange.ladder(numThreads, tMin, tMax), exchangeInterval, sense), (feasibleSolution, random) -> new SimulatedAnnealing(tMin, 0, decoder, sense, feasibleSolution, randomFeasibleNeighbor, stoppingCriterion, random), sense.getFitnessFunction());
+    }
+
+    /**
+     * Constructs a parallel tempering composed by the specified number of
+     * simulated annealing, i.e., replicas, which move through the neighbors
+     * by means of moves scored by a delta evaluator, evaluate the starting
+     * solutions by means of a primitive decoder and compare the objective
+     * function values according to an objective sense.
+     * The replicas don't cool down: the <i>i</i>-th replica holds the
+     * <i>i</i>-th temperature of the geometric ladder from <i>tMin</i> to
+     * <i>tMax</i>. Every <i>exchangeInterval</i> iterations, each replica
+     * attempts to swap its current vector with its hotter neighbour, which
+     * is accepted by the Metropolis test of replica exchange. The swaps
+     * don't make the replicas wait for each other, so that they depend on
+     * the scheduling of the threads.
+     * The move function, the delta evaluator, the decoder and the stopping
+     * criterion objects are shared by all the threads. It is your own
+     * responsibility to implement synchronized methods or methods which don't
+     * arise race conditions.
+     * This multi-threading manager creates the specified number of heuristic
+     * objects using a different seed for each of it, i.e., using <tt>seed+i</tt>
+     * where <tt>seed</tt> is given and <tt>i</tt> is the index of the heuristic
+     * in the internal sorting, which is its index on the ladder.
+     * @param <M> the type of the moves
+     * @param numThreads the number of replicas
+     * @param tMin the temperature of the coldest replica
+     * @param tMax the temperature of the hottest replica
+     * @param exchangeInterval the number of iterations between two swap
+     * attempts of a replica
+     * @param decoder the decoder used to evaluate the starting solutions
+     * @param deltaEvaluator the evaluator of the moves
+     * @param sense MINIMIZE or MAXIMIZE problem
+     * @param feasibleSolutions the starting feasible solutions for each
+     * replica
+     * @param randomFeasibleMove the function from (un)feasible solution to a
+     * random move towards one of its neighbors
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     * @param seed
+     */
+    public <M extends Move> SimulatedAnnealingBatch (int numThreads, float tMin, float tMax, int exchangeInterval, ToDoubleFunction<? super Vector> decoder, DeltaEvaluator<? super M> deltaEvaluator, ObjectiveSense sense, Vector[] feasibleSolutions, Function<Vector, M> randomFeasibleMove, Predicate<? super SimulatedAnnealing> stoppingCriterion, long seed) {
+        this(numThreads, feasibleSolutions, seed, new ReplicaExchange(ReplicaExchange.ladder(numThreads, tMin, tMax), exchangeInterval, sense), (feasibleSolution, random) -> new SimulatedAnnealing(tMin, 0, decoder, deltaEvaluator, sense, feasibleSolution, randomFeasibleMove, stoppingCriterion, random), sense.getFitnessFunction());
+    }
+
+    private SimulatedAnnealingBatch (int numThreads, Vector[] feasibleSolutions, long seed, BiFunction<Vector, Random, SimulatedAnnealing> simulatedAnnealing, Comparator<? super Vector> fitnessFunction) {
+        this(numThreads, feasibleSolutions, seed, null, simulatedAnnealing, fitnessFunction);
+    }
+
+    private SimulatedAnnealingBatch (int numThreads, Vector[] feasibleSolutions, long seed, ReplicaExchange exchange, BiFunction<Vector, Random, SimulatedAnnealing> simulatedAnnealing, Comparator<? super Vector> fitnessFunction) {
         if(numThreads < 1)
             throw new IllegalArgumentException("There must be at least one thread");
         if(numThreads != feasibleSolutions.length)
             throw new IllegalArgumentException("The number of threads and the array length of feasible solutions must be the same");
+        this.exchange = exchange;
         SimulatedAnnealing[] simulatedAnnealings = new SimulatedAnnealing[numThreads];
         for(int i=0; i<simulatedAnnealings.length; i++) {
             Random random = new Random();
             random.setSeed(seed+i);
-            simulatedAnnealings[i] = new SimulatedAnnealing(t0, tDelta, decoder, fitnessFunction, feasibleSolutions[i], randomFeasibleNeighbor, stoppingCriterion, random);
+            simulatedAnnealings[i] = simulatedAnnealing.apply(feasibleSolutions[i], random);
+            if(exchange != null)
+                simulatedAnnealings[i].join(exchange, i);
         }
         super.setVectorComparator(fitnessFunction);
         super.setHeuristics(simulatedAnnealings);
     }
+
+    /**
+     * Sets the number of candidate neighbors drawn by each iteration of each
+     * simulated annealing, which are evaluated in parallel on the common
+     * fork-join pool, e.g., to use many cores for a few hard chains.
+     * @param candidates the number of candidate neighbors per iteration, or
+     * 1 to draw a single neighbor (the default)
+     * @see SimulatedAnnealing#setCandidates(int) 
+     */
+    public void setCandidates(int candidates) {
+        for(Heuristic heuristic: super.getHeuristics())
+            ((SimulatedAnnealing) heuristic).setCandidates(candidates);
+    }
+
+    /**
+     * Returns the current temperature of a simulated annealing, which is
+     * fixed in the replica exchange mode.
+     * @param index the index of the simulated annealing, i.e., of the replica
+     * on the ladder
+     * @return the current temperature
+     */
+    public float getTemperature(int index) {
+        return ((SimulatedAnnealing) super.getHeuristics()[index]).getTemperature();
+    }
+
+    /**
+     * Returns the number of swaps between neighbouring replicas which have
+     * been attempted, or 0 if the batch isn't in the replica exchange mode.
+     * @return the number of swap attempts
+     */
+    public long getExchangeAttempts() {
+        return exchange == null ? 0 : exchange.getAttempts();
+    }
+
+    /**
+     * Returns the number of swaps between neighbouring replicas which have
+     * been accepted, or 0 if the batch isn't in the replica exchange mode. A
+     * low ratio of accepted swaps means that the ladder is too sparse.
+     * @return the number of accepted swaps
+     */
+    public long getExchangeAcceptances() {
+        return exchange == null ? 0 : exchange.getAcceptances();
+    }
 }
@@ -0,0 +1,175 @@
+package heuristics.nbh.ts;
+
+import heuristics.Checkpoint;
+import heuristics.Vector;
+import java.util.Arrays;
+
+/**
+ * A tabu memory which remembers the last <i>tenure</i> added keys.
+ * A key is either the hash of a solution, so that the last visited solutions
+ * are tabu, or an attribute of a move, so that the moves which would undo
+ * the last applied moves are tabu.
+ * The keys are kept in a ring buffer, where each key is stamped with the time
+ * it was added, and indexed by an open addressing hash table built upon
+ * primitive arrays: both the membership test and the insertion take constant
+ * time, whatever the tenure is.
+ * This class is not thread-safe, but the membership test can be performed
+ * concurrently by many threads while no key is being added.
+ * @author Mirko Alicastro {@link https://mirkoalicastro.com}
+ */
+public final class TabuMemory {
+    private final long[] ringKeys;
+    private final int[] ringStamps;
+    private final long[] keys;
+    private final int[] stamps;
+    private final int mask;
+    private int head, size, clock;
+
+    /**
+     * Constructs an empty tabu memory.
+     * @param tenure the number of keys to remember
+     */
+    public TabuMemory(int tenure) {
+        if(tenure < 1)
+            throw new IllegalArgumentException("The tabu tenure must be greater than 0");
+        ringKeys = new long[tenure];
+        ringStamps = new int[tenure];
+        int capacity = Integer.highestOneBit(tenure)*4;
+        keys = new long[capacity];
+        stamps = new int[capacity];
+        mask = capacity-1;
+    }
+
+    /**
+     * Returns a 64-bit hash of the contents of a vector.
+     * Two vectors which are equal have the same hash. The hash is used in
+     * place of the vector, so two different vectors with the same hash are
+     * considered the same solution: with 64 bits this is unlikely enough to
+     * be ignored.
+     * @param vector the vector
+     * @return the hash of the vector
+     * @see Vector#longHashCode() 
+     */
+    public static long hash(Vector vector) {
+        return vector.longHashCode();
+    }
+
+    /**
+     * Returns the number of keys this memory remembers.
+     * @return the tenure
+     */
+    public int getTenure() {
+        return ringKeys.length;
+    }
+
+    /**
+     * Returns true if the key is tabu, i.e., if it was added among the last
+     * <i>tenure</i> keys.
+     * @param key the key
+     * @return true if the key is tabu
+     */
+    public boolean contains(long key) {
+        return stamps[slot(key)] != 0;
+    }
+
+    /**
+     * Makes a key tabu.
+     * If the memory is full, the oldest key is forgotten, unless it was added
+     * again in the meanwhile.
+     * @param key the key
+     */
+    public void add(long key) {
+        if(++clock == 0)
+            clock = 1;
+        if(size == ringKeys.length) {
+            int slot = slot(ringKeys[head]);
+            if(stamps[slot] == ringStamps[head])
+                remove(slot);
+        } else {
+            size++;
+        }
+        int slot = slot(key);
+        keys[slot] = key;
+        stamps[slot] = clock;
+        ringKeys[head] = key;
+        ringStamps[head] = clock;
+        head = (head+1)%ringKeys.length;
+    }
+
+    /**
+     * Forgets all the keys.
+     */
+    public void clear() {
+        Arrays.fill(stamps, 0);
+        head = size = 0;
+    }
+
+    /**
+     * Returns true if no key is tabu.
+     * @return true if the memory is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Writes the keys, with their stamps, into a checkpoint.
+     * @param out the state to write
+     */
+    public void checkpoint(Checkpoint.Writer out) {
+        out.putInt(ringKeys.length).putInt(head).putInt(size).putInt(clock);
+        out.putLongs(ringKeys, 0, ringKeys.length).putInts(ringStamps, 0, ringStamps.length);
+        out.putLongs(keys, 0, keys.length).putInts(stamps, 0, stamps.length);
+    }
+
+    /**
+     * Restores the keys, with their stamps, from a checkpoint of a memory
+     * with the same tenure.
+     * @param in the state to read
+     */
+    public void restore(Checkpoint.Reader in) {
+        if(in.getInt() != ringKeys.length)
+            throw new IllegalArgumentException("The checkpointed tabu memory has a different tenure");
+        head = in.getInt();
+        size = in.getInt();
+        clock = in.getInt();
+        in.getLongs(ringKeys, 0, ringKeys.length);
+        in.getInts(ringStamps, 0, ringStamps.length);
+        in.getLongs(keys, 0, keys.length);
+        in.getInts(stamps, 0, stamps.length);
+    }
+
+    /**
+     * Returns the slot which contains the key, or the empty slot where the key
+     * would be inserted.
+     */
+    private int slot(long key) {
+        int slot = (int)mix(key) & mask;
+        while(stamps[slot] != 0 && keys[slot] != key)
+            slot = (slot+1) & mask;
+        return slot;
+    }
+
+    /**
+     * Empties a slot, shifting back the following keys of its cluster so that
+     * no lookup is broken by the hole.
+     */
+    private void remove(int slot) {
+        int hole = slot;
+        for(int next = (hole+1) & mask; stamps[next] != 0; next = (next+1) & mask) {
+            int home = (int)mix(keys[next]) & mask;
+            if(((next-home) & mask) >= ((next-hole) & mask)) {
+                keys[hole] = keys[next];
+                stamps[hole] = stamps[next];
+                hole = next;
+            }
+        }
+        stamps[hole] = 0;
+    }
+
+    private static long mix(long key) {
+        key = (key^(key >>> 33))*0xFF51AFD7ED558CCDL;
+        key = (key^(key >>> 33))*0xC4CEB9FE1A85EC53L;
+        return key^(key >>> 33);
+    }
+}
@@ -1,12 +1,23 @@
 package heuristics.nbh.ts;
 
-import java.util.LinkedList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
 import heuristics.Vector;
+import heuristics.BatchDecoder;
+import heuristics.Checkpoint;
 import heuristics.Heuristic;
-import java.util.Comparator;
+import heuristics.HeuristicEvents;
+import heuristics.ValueComparator;
+import heuristics.nbh.BestNeighbors;
+import heuristics.nbh.DeltaEvaluator;
+import heuristics.nbh.Move;
 import java.util.Random;
 
 /**
@@ -14,35 +25,92 @@ import java.util.Random;
  * @author Mirko Alicastro {@link https://mirkoalicastro.com}
  */
 public class TabuSearch extends Heuristic {
-    private final Function<Vector, List<Vector>> neighborhood;
+    private final Function<Vector, ? extends Iterable<Vector>> neighborhood;
+    private final Function<Vector, ? extends Iterable<? extends Move>> moveNeighborhood;
+    private final DeltaEvaluator<Move> deltaEvaluator;
     private final Predicate<? super TabuSearch> stoppingCriterion;
-    private final LimitedList<Vector> tabuList;
+    private final TabuMemory tabuMemory;
+    private final ToLongFunction<Move> tabuAttribute;
     private Vector curVector;
     
-    private final Function<? super Vector, Double> decoder;
-    private final Comparator<? super Vector> fitnessFunction;
+    private final ToDoubleFunction<? super Vector> decoder;
+    private final ValueComparator valueComparator;
     
-    private final Random random;
+    private Random random;
     /**
      * Constructs a TabuSearch object.
      * @param tabuListSize the tabu list size
      * @param decoder the decoder used to evaluate
-     * @param fitnessFunction MIN or MAX problem
+     * @param valueComparator MIN or MAX problem
      * @param feasibleSolution the starting feasible solution
      * @param neighborhood the function from (un)feasible solution to its
-     * neighbors
+     * neighbors, which can be generated lazily
      * @param stoppingCriterion the predicate that returns true if the stopping
      * criterion has been met
      * than 0
+     * @see heuristics.nbh.LazyNeighborhood
      */
-    TabuSearch(int tabuListSize, Function<? super Vector, Double> decoder, Comparator<? super Vector> fitnessFunction, Vector feasibleSolution, Function<Vector, List<Vector>> neighborhood, Predicate<? super TabuSearch> stoppingCriterion, Random random) {
-        this.decoder = decoder;
-        this.fitnessFunction = fitnessFunction;
+    TabuSearch(int tabuListSize, ToDoubleFunction<? super Vector> decoder, ValueComparator valueComparator, Vector feasibleSolution, Function<Vector, ? extends Iterable<Vector>> neighborhood, Predicate<? super TabuSearch> stoppingCriterion, Random random) {
+        this(tabuListSize, decoder, valueComparator, feasibleSolution, neighborhood, null, null, null, stoppingCriterion, random);
+    }
+
+    /**
+     * Constructs a TabuSearch object which explores the neighborhood by means
+     * of moves, scored by a delta evaluator.
+     * Only the best moves are materialized: the moves which are better than
+     * them are materialized only if they turn out to be tabu.
+     * @param tabuListSize the tabu list size
+     * @param decoder the decoder used to evaluate the starting solution
+     * @param deltaEvaluator the evaluator of the moves
+     * @param valueComparator MIN or MAX problem
+     * @param feasibleSolution the starting feasible solution
+     * @param moveNeighborhood the function from (un)feasible solution to the
+     * moves towards its neighbors, which can be generated lazily and must be
+     * iterable more than once
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     */
+    <M extends Move> TabuSearch(int tabuListSize, ToDoubleFunction<? super Vector> decoder, DeltaEvaluator<? super M> deltaEvaluator, ValueComparator valueComparator, Vector feasibleSolution, Function<Vector, ? extends Iterable<M>> moveNeighborhood, Predicate<? super TabuSearch> stoppingCriterion, Random random) {
+        this(tabuListSize, decoder, deltaEvaluator, null, valueComparator, feasibleSolution, moveNeighborhood, stoppingCriterion, random);
+    }
+
+    /**
+     * Constructs a TabuSearch object which explores the neighborhood by means
+     * of moves, scored by a delta evaluator, and whose tabu memory is made up
+     * by move attributes rather than by solutions.
+     * Each applied move makes its attribute tabu for the next
+     * <i>tabuListSize</i> iterations, and the moves whose attribute is tabu
+     * are discarded without being materialized: e.g., a swap move (i,j) can
+     * use i*n+j as attribute, so that it is not undone for <i>tabuListSize</i>
+     * iterations. Only the chosen move is materialized.
+     * @param tabuListSize the tabu tenure, i.e., the number of iterations an
+     * attribute stays tabu
+     * @param decoder the decoder used to evaluate the starting solution
+     * @param deltaEvaluator the evaluator of the moves
+     * @param tabuAttribute the function from a move to its attribute
+     * @param valueComparator MIN or MAX problem
+     * @param feasibleSolution the starting feasible solution
+     * @param moveNeighborhood the function from (un)feasible solution to the
+     * moves towards its neighbors, which can be generated lazily
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     */
+    @SuppressWarnings("unchecked")
+    <M extends Move> TabuSearch(int tabuListSize, ToDoubleFunction<? super Vector> decoder, DeltaEvaluator<? super M> deltaEvaluator, ToLongFunction<? super M> tabuAttribute, ValueComparator valueComparator, Vector feasibleSolution, Function<Vector, ? extends Iterable<M>> moveNeighborhood, Predicate<? super TabuSearch> stoppingCriterion, Random random) {
+        this(tabuListSize, decoder, valueComparator, feasibleSolution, null, moveNeighborhood, (DeltaEvaluator<Move>) deltaEvaluator, (ToLongFunction<Move>) tabuAttribute, stoppingCriterion, random);
+    }
+
+    private TabuSearch(int tabuListSize, ToDoubleFunction<? super Vector> decoder, ValueComparator valueComparator, Vector feasibleSolution, Function<Vector, ? extends Iterable<Vector>> neighborhood, Function<Vector, ? extends Iterable<? extends Move>> moveNeighborhood, DeltaEvaluator<Move> deltaEvaluator, ToLongFunction<Move> tabuAttribute, Predicate<? super TabuSearch> stoppingCriterion, Random random) {
+        this.decoder = super.getMetrics().instrument(decoder);
+        this.valueComparator = valueComparator;
         this.neighborhood = neighborhood;
+        this.moveNeighborhood = moveNeighborhood;
+        this.deltaEvaluator = deltaEvaluator == null ? null : deltaEvaluator.instrumentedBy(super.getMetrics());
         this.stoppingCriterion = stoppingCriterion;
-        tabuList = new LimitedList<>(tabuListSize);
+        tabuMemory = new TabuMemory(tabuListSize);
+        this.tabuAttribute = tabuAttribute;
         curVector = new Vector(feasibleSolution);
-        curVector.setValue(decoder.apply(curVector));
+        curVector.setValue(this.decoder.applyAsDouble(curVector));
         if(random == null) {
             random = new Random();
             random.setSeed(System.nanoTime());
@@ -60,49 +128,107 @@ public class TabuSearch extends Heuristic {
         if(stoppingCriterion.test(this))
             return false;
         super.increaseIterations();
-        List<Vector> neighbors = neighborhood.apply(curVector);
-        neighbors.removeAll(tabuList);
-        if(neighbors.isEmpty()) {
-            if(!tabuList.isEmpty()) {
-                tabuList.clear();
-                return true;
-            } else {
-                return false;
-            }
+        if(moveNeighborhood != null)
+            return iterateOverMoves();
+        Iterable<Vector> neighbors = neighborhood.apply(curVector);
+        Stream<Vector> notTabu = super.getMetrics().countNeighbors(StreamSupport.stream(neighbors.spliterator(), true)).filter(neighbor -> !tabuMemory.contains(TabuMemory.hash(neighbor)));
+        BestNeighbors<Vector> bestNeighbors;
+        if(decoder instanceof BatchDecoder)
+            bestNeighbors = evaluate(() -> BestNeighbors.decode(notTabu, (BatchDecoder) decoder, valueComparator));
+        else
+            bestNeighbors = evaluate(() -> BestNeighbors.of(notTabu, neighbor -> neighbor.setValue(decoder.applyAsDouble(neighbor)).getValue(), valueComparator));
+        return moveToRandom(bestNeighbors.getNeighbors());
+    }
+
+    private boolean iterateOverMoves() {
+        Vector parent = curVector;
+        Iterable<? extends Move> moves = moveNeighborhood.apply(parent);
+        if(tabuAttribute != null) {
+            Stream<? extends Move> notTabu = super.getMetrics().countNeighbors(StreamSupport.stream(moves.spliterator(), true)).filter(move -> !tabuMemory.contains(tabuAttribute.applyAsLong(move)));
+            BestNeighbors<Move> bestMoves = evaluate(() -> BestNeighbors.of(notTabu, move -> parent.getValue()+deltaEvaluator.delta(parent, move), valueComparator));
+            if(bestMoves.isEmpty())
+                return clearTabuMemory();
+            List<Move> best = bestMoves.getNeighbors();
+            Move move = best.get(random.nextInt(best.size()));
+            tabuMemory.add(tabuAttribute.applyAsLong(move));
+            moveTo(move.applyTo(parent).setValue(bestMoves.getValue()));
+            return true;
+        }
+        ToDoubleFunction<Move> evaluator = move -> parent.getValue()+deltaEvaluator.delta(parent, move);
+        BestNeighbors<Move> bestMoves = evaluate(() -> BestNeighbors.of(super.getMetrics().countNeighbors(StreamSupport.stream(moves.spliterator(), true)), evaluator, valueComparator));
+        while(true) {
+            if(bestMoves.isEmpty())
+                return clearTabuMemory();
+            double value = bestMoves.getValue();
+            List<Vector> bestNeighbors = bestMoves.getNeighbors().stream()
+                    .map(move -> move.applyTo(parent).setValue(value))
+                    .filter(neighbor -> !tabuMemory.contains(TabuMemory.hash(neighbor)))
+                    .collect(Collectors.toList());
+            if(!bestNeighbors.isEmpty())
+                return moveToRandom(bestNeighbors);
+            bestMoves = evaluate(() -> BestNeighbors.of(StreamSupport.stream(moves.spliterator(), true), evaluator, valueComparator, value));
         }
-        evaluateAndThenSortNeighbors(neighbors);
-        int bestFirst = 0;
-        while(bestFirst+1 < neighbors.size() && fitnessFunction.compare(neighbors.get(bestFirst), neighbors.get(bestFirst+1)) == 0)
-            bestFirst++;
-        int randBest = random.nextInt(bestFirst+1);
-        curVector = neighbors.get(randBest);
-        tabuList.add(curVector);
-        if(fitnessFunction.compare(curVector, super.getBestVector()) < 0)
+    }
+
+    /**
+     * Evaluates a neighborhood, recording the evaluation as a Flight Recorder
+     * event.
+     */
+    private <T> BestNeighbors<T> evaluate(Supplier<BestNeighbors<T>> evaluation) {
+        HeuristicEvents.Evaluation event = HeuristicEvents.Evaluation.begin();
+        BestNeighbors<T> bestNeighbors = evaluation.get();
+        event.end(this, "neighborhood");
+        return bestNeighbors;
+    }
+
+    /**
+     * Moves to a random neighbor among the best non-tabu neighbors and makes
+     * it tabu.
+     * If there is no such neighbor, the tabu memory is cleared.
+     * @return false if there is no neighbor and the tabu memory is empty, true
+     * otherwise
+     */
+    private boolean moveToRandom(List<Vector> bestNeighbors) {
+        if(bestNeighbors.isEmpty())
+            return clearTabuMemory();
+        moveTo(bestNeighbors.get(random.nextInt(bestNeighbors.size())));
+        tabuMemory.add(TabuMemory.hash(curVector));
+        return true;
+    }
+
+    private void moveTo(Vector neighbor) {
+        curVector = neighbor;
+        if(valueComparator.compare(curVector.getValue(), super.getBestValue()) < 0)
             super.updateBest(curVector);
+    }
+
+    /**
+     * Clears the tabu memory, since no neighbor can be reached.
+     * @return false if the tabu memory was already empty, true otherwise
+     */
+    private boolean clearTabuMemory() {
+        if(tabuMemory.isEmpty())
+            return false;
+        tabuMemory.clear();
         return true;
     }
-    
-    private void evaluateAndThenSortNeighbors(List<Vector> neighbors) {
-        neighbors.parallelStream().forEach(neighbor -> neighbor.setValue(decoder.apply(neighbor)));
-        neighbors.sort(fitnessFunction);
+
+    @Override
+    public double getCurrentValue() {
+        return curVector.getValue();
     }
-    
-    private static class LimitedList<T> extends LinkedList<T> {
-        int capacity;
-        
-        LimitedList(int capacity) {
-            if(capacity < 1)
-                throw new IllegalArgumentException("Limited list capacity must be greater than 0");
-            this.capacity = capacity;
-        }
-        
-        @Override
-        public boolean add(T el) {
-            super.add(el);
-            while(size() > capacity)
-                super.remove();
-            return true;
-        }
+
+    @Override
+    protected void writeState(Checkpoint.Writer out) {
+        out.putVector(curVector);
+        tabuMemory.checkpoint(out);
+        out.putRandom(random);
+    }
+
+    @Override
+    protected void readState(Checkpoint.Reader in) {
+        curVector = in.getVector();
+        tabuMemory.restore(in);
+        random = in.getRandom();
     }
-        
 }
@@ -1,11 +1,17 @@
 package heuristics.nbh.ts;
 
 import heuristics.Batch;
-import java.util.List;
+import heuristics.ObjectiveSense;
+import heuristics.ValueComparator;
 import java.util.Random;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
 import heuristics.Vector;
+import heuristics.nbh.DeltaEvaluator;
+import heuristics.nbh.Move;
 import java.util.Comparator;
 
 /**
@@ -31,12 +37,174 @@ public class TabuSearchBatch extends Batch {
      * @param fitnessFunction MIN or MAX problem
      * @param feasibleSolutions the starting feasible solutions for threads
      * @param neighborhood the function from (un)feasible solution to its
-     * neighbors
+     * neighbors, which can be generated lazily
      * @param stoppingCriterion the predicate that returns true if the stopping
      * criterion has been met
      * @param seed the seed parameter to be used for random calls
      */
-    public TabuSearchBatch (int numThreads, int tabuListSize, Function<? super Vector, Double> decoder, Comparator<? super Vector> fitnessFunction, Vector[] feasibleSolutions, Function<Vector, List<Vector>> neighborhood, Predicate<? super TabuSearch> stoppingCriterion, long seed) {
+    public TabuSearchBatch (int numThreads, int tabuListSize, Function<? super Vector, Double> decoder, Comparator<? super Vector> fitnessFunction, Vector[] feasibleSolutions, Function<Vector, ? extends Iterable<Vector>> neighborhood, Predicate<? super TabuSearch> stoppingCriterion, long seed) {
+        this(numThreads, feasibleSolutions, seed, (feasibleSolution, random) -> new TabuSearch(tabuListSize, decoder::apply, ValueComparator.of(fitnessFunction), feasibleSolution, neighborhood, stoppingCriterion, random), fitnessFunction);
+    }
+
+    /**
+     * Constructs a multi-thread tabu search algorithm composed by the specified
+     * number of threads, which explore the neighborhoods by means of moves
+     * scored by a delta evaluator.
+     * The move neighborhood function, the delta evaluator, the vector
+     * comparator and the stopping criterion objects are shared by all the
+     * threads. It is your own responsibility to implement synchronized methods
+     * or methods which don't arise race conditions.
+     * This multi-threading manager creates the specified number of heuristic
+     * objects using a different seed for each of it, i.e., using <tt>seed+i</tt>
+     * where <tt>seed</tt> is given and <tt>i</tt> is the index of the heuristic
+     * in the internal sorting.
+     * @param <M> the type of the moves
+     * @param numThreads the number of threads
+     * @param tabuListSize the maximum capacity for the tabù list
+     * @param decoder the decoder used to evaluate the starting solutions
+     * @param deltaEvaluator the evaluator of the moves
+     * @param fitnessFunction MIN or MAX problem
+     * @param feasibleSolutions the starting feasible solutions for threads
+     * @param moveNeighborhood the function from (un)feasible solution to the
+     * moves towards its neighbors, which can be generated lazily and must be
+     * iterable more than once
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     * @param seed the seed parameter to be used for random calls
+     */
+    public <M extends Move> TabuSearchBatch (int numThreads, int tabuListSize, Function<? super Vector, Double> decoder, DeltaEvaluator<? super M> deltaEvaluator, Comparator<? super Vector> fitnessFunction, Vector[] feasibleSolutions, Function<Vector, ? extends Iterable<M>> moveNeighborhood, Predicate<? super TabuSearch> stoppingCriterion, long seed) {
+        this(numThreads, feasibleSolutions, seed, (feasibleSolution, random) -> new TabuSearch(tabuListSize, decoder::apply, deltaEvaluator, ValueComparator.of(fitnessFunction), feasibleSolution, moveNeighborhood, stoppingCriterion, random), fitnessFunction);
+    }
+
+    /**
+     * Constructs a multi-thread tabu search algorithm composed by the specified
+     * number of threads, which explore the neighborhoods by means of moves
+     * scored by a delta evaluator and whose tabu memories are made up by move
+     * attributes.
+     * Each applied move makes its attribute tabu for the next
+     * <i>tabuListSize</i> iterations, and the moves whose attribute is tabu
+     * are discarded without being materialized.
+     * The move neighborhood function, the delta evaluator, the attribute
+     * function, the vector comparator and the stopping criterion objects are
+     * shared by all the threads. It is your own responsibility to implement
+     * synchronized methods or methods which don't arise race conditions.
+     * This multi-threading manager creates the specified number of heuristic
+     * objects using a different seed for each of it, i.e., using <tt>seed+i</tt>
+     * where <tt>seed</tt> is given and <tt>i</tt> is the index of the heuristic
+     * in the internal sorting.
+     * @param <M> the type of the moves
+     * @param numThreads the number of threads
+     * @param tabuListSize the tabu tenure, i.e., the number of iterations an
+     * attribute stays tabu
+     * @param decoder the decoder used to evaluate the starting solutions
+     * @param deltaEvaluator the evaluator of the moves
+     * @param tabuAttribute the function from a move to its attribute
+     * @param fitnessFunction MIN or MAX problem
+     * @param feasibleSolutions the starting feasible solutions for threads
+     * @param moveNeighborhood the function from (un)feasible solution to the
+     * moves towards its neighbors, which can be generated lazily
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     * @param seed the seed parameter to be used for random calls
+     */
+    public <M extends Move> TabuSearchBatch (int numThreads, int tabuListSize, Function<? super Vector, Double> decoder, DeltaEvaluator<? super M> deltaEvaluator, ToLongFunction<? super M> tabuAttribute, Comparator<? super Vector> fitnessFunction, Vector[] feasibleSolutions, Function<Vector, ? extends Iterable<M>> moveNeighborhood, Predicate<? super TabuSearch> stoppingCriterion, long seed) {
+        this(numThreads, feasibleSolutions, seed, (feasibleSolution, random) -> new TabuSearch(tabuListSize, decoder::apply, deltaEvaluator, tabuAttribute, ValueComparator.of(fitnessFunction), feasibleSolution, moveNeighborhood, stoppingCriterion, random), fitnessFunction);
+    }
+
+    /**
+     * Constructs a multi-thread tabu search algorithm composed by the specified
+     * number of threads, which evaluate the vectors by means of a primitive
+     * decoder and compare the objective function values according to an
+     * objective sense, so that no value is boxed.
+     * The neighborhood function, the decoder and the stopping criterion
+     * objects are shared by all the threads. It is your own responsibility to
+     * implement synchronized methods or methods which don't arise race
+     * conditions.
+     * This multi-threading manager creates the specified number of heuristic
+     * objects using a different seed for each of it, i.e., using <tt>seed+i</tt>
+     * where <tt>seed</tt> is given and <tt>i</tt> is the index of the heuristic
+     * in the internal sorting.
+     * @param numThreads the number of threads
+     * @param tabuListSize the maximum capacity for the tabù list
+     * @param decoder the decoder used by all threads
+     * @param sense MINIMIZE or MAXIMIZE problem
+     * @param feasibleSolutions the starting feasible solutions for threads
+     * @param neighborhood the function from (un)feasible solution to its
+     * neighbors, which can be generated lazily
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     * @param seed the seed parameter to be used for random calls
+     */
+    public TabuSearchBatch (int numThreads, int tabuListSize, ToDoubleFunction<? super Vector> decoder, ObjectiveSense sense, Vector[] feasibleSolutions, Function<Vector, ? extends Iterable<Vector>> neighborhood, Predicate<? super TabuSearch> stoppingCriterion, long seed) {
+        this(numThreads, feasibleSolutions, seed, (feasibleSolution, random) -> new TabuSearch(tabuListSize, decoder, sense, feasibleSolution, neighborhood, stoppingCriterion, random), sense.getFitnessFunction());
+    }
+
+    /**
+     * Constructs a multi-thread tabu search algorithm composed by the specified
+     * number of threads, which explore the neighborhoods by means of moves
+     * scored by a delta evaluator, evaluate the starting solutions by means of
+     * a primitive decoder and compare the objective function values according
+     * to an objective sense, so that no value is boxed.
+     * The move neighborhood function, the delta evaluator, the decoder and
+     * the stopping criterion objects are shared by all the threads. It is your
+     * own responsibility to implement synchronized methods or methods which
+     * don't arise race conditions.
+     * This multi-threading manager creates the specified number of heuristic
+     * objects using a different seed for each of it, i.e., using <tt>seed+i</tt>
+     * where <tt>seed</tt> is given and <tt>i</tt> is the index of the heuristic
+     * in the internal sorting.
+     * @param <M> the type of the moves
+     * @param numThreads the number of threads
+     * @param tabuListSize the maximum capacity for the tabù list
+     * @param decoder the decoder used to evaluate the starting solutions
+     * @param deltaEvaluator the evaluator of the moves
+     * @param sense MINIMIZE or MAXIMIZE problem
+     * @param feasibleSolutions the starting feasible solutions for threads
+     * @param moveNeighborhood the function from (un)feasible solution to the
+     * moves towards its neighbors, which can be generated lazily and must be
+     * iterable more than once
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     * @param seed the seed parameter to be used for random calls
+     */
+    public <M extends Move> TabuSearchBatch (int numThreads, int tabuListSize, ToDoubleFunction<? super Vector> decoder, DeltaEvaluator<? super M> deltaEvaluator, ObjectiveSense sense, Vector[] feasibleSolutions, Function<Vector, ? extends Iterable<M>> moveNeighborhood, Predicate<? super TabuSearch> stoppingCriterion, long seed) {
+        this(numThreads, feasibleSolutions, seed, (feasibleSolution, random) -> new TabuSearch(tabuListSize, decoder, deltaEvaluator, sense, feasibleSolution, moveNeighborhood, stoppingCriterion, random), sense.getFitnessFunction());
+    }
+
+    /**
+     * Constructs a multi-thread tabu search algorithm composed by the specified
+     * number of threads, which explore the neighborhoods by means of moves
+     * scored by a delta evaluator, whose tabu memories are made up by move
+     * attributes, and which compare the objective function values according to
+     * an objective sense, so that no value is boxed.
+     * The move neighborhood function, the delta evaluator, the attribute
+     * function, the decoder and the stopping criterion objects are shared by
+     * all the threads. It is your own responsibility to implement synchronized
+     * methods or methods which don't arise race conditions.
+     * This multi-threading manager creates the specified number of heuristic
+     * objects using a different seed for each of it, i.e., using <tt>seed+i</tt>
+     * where <tt>seed</tt> is given and <tt>i</tt> is the index of the heuristic
+     * in the internal sorting.
+     * @param <M> the type of the moves
+     * @param numThreads the number of threads
+     * @param tabuListSize the tabu tenure, i.e., the number of iterations an
+     * attribute stays tabu
+     * @param decoder the decoder used to evaluate the starting solutions
+     * @param deltaEvaluator the evaluator of the moves
+     * @param tabuAttribute the function from a move to its attribute
+     * @param sense MINIMIZE or MAXIMIZE problem
+     * @param feasibleSolutions the starting feasible solutions for threads
+     * @param moveNeighborhood the function from (un)feasible solution to the
+     * moves towards its neighbors, which can be generated lazily
+     * @param stoppingCriterion the predicate that returns true if the stopping
+     * criterion has been met
+     * @param seed the seed parameter to be used for random calls
+     */
+    public <M extends Move> TabuSearchBatch (int numThreads, int tabuListSize, ToDoubleFunction<? super Vector> decoder, DeltaEvaluator<? super M> deltaEvaluator, ToLongFunction<? super M> tabuAttribute, ObjectiveSense sense, Vector[] feasibleSolutions, Function<Vector, ? extends Iterable<M>> moveNeighborhood, Predicate<? super TabuSearch> stoppingCriterion, long seed) {
+        this(numThreads, feasibleSolutions, seed, (feasibleSolution, random) -> new TabuSearch(tabuListSize, decoder, deltaEvaluator, tabuAttribute, sense, feasibleSolution, moveNeighborhood, stoppingCriterion, random), sense.getFitnessFunction());
+    }
+
+    private TabuSearchBatch (int numThreads, Vector[] feasibleSolutions, long seed, BiFunction<Vector, Random, TabuSearch> tabuSearch, Comparator<? super Vector> fitnessFunction) {
         if(numThreads < 1)
             throw new IllegalArgumentException("There must be at least one thread");
         if(numThreads != feasibleSolutions.length)
@@ -45,9 +213,9 @@ public class TabuSearchBatch extends Batch {
         for(int i=0; i<tabuSearches.length; i++) {
             Random random = new Random();
             random.setSeed(seed+i);
-            tabuSearches[i] = new TabuSearch(tabuListSize, decoder, fitnessFunction, feasibleSolutions[i], neighborhood, stoppingCriterion, random);
+            tabuSearches[i] = tabuSearch.apply(feasibleSolutions[i], random);
         }
         super.setVectorComparator(fitnessFunction);
         super.setHeuristics(tabuSearches);
-    }    
+    }
 }